@@ -1,12 +1,21 @@
 package com.jmarqb.ms.auth.app;
 
+import com.jmarqb.ms.auth.app.security.PasswordHashingCalibrator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Arrays;
+
+@EnableScheduling
 @SpringBootApplication
 public class MsAuthApplication {
 
     public static void main(String[] args) {
+        if (args.length > 0 && PasswordHashingCalibrator.COMMAND.equals(args[0])) {
+            PasswordHashingCalibrator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(MsAuthApplication.class, args);
     }
 
@@ -0,0 +1,100 @@
+package com.jmarqb.ms.auth.app;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that pin their carrier thread, e.g. by blocking inside a {@code synchronized} block of a
+ * driver or pool.
+ * <p>
+ * Active only with {@code spring.threads.virtual.enabled=true}. Listens to the JFR {@code jdk.VirtualThreadPinned}
+ * event for pins longer than {@code ms-auth.virtual-threads.pinning-threshold}, publishes them as the
+ * {@code jvm.threads.virtual.pinned} timer and logs the stack of each distinct pinning site once at WARN.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor implements MeterBinder, DisposableBean {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int MAX_FRAMES = 16;
+    private static final int MAX_REPORTED_SITES = 256;
+
+    private final RecordingStream recording;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPinningMonitor(
+            @Value("${ms-auth.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+    }
+
+    public long pinnedCount() {
+        return count.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("jvm.threads.virtual.pinned", this,
+                        monitor -> monitor.count.sum(), monitor -> monitor.totalNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        recording.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        count.increment();
+        totalNanos.add(event.getDuration().toNanos());
+
+        String site = site(event.getStackTrace());
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(site)) {
+            log.warn("Virtual thread pinned its carrier for {} ms{}", event.getDuration().toMillis(), site);
+        } else {
+            log.debug("Virtual thread pinned its carrier for {} ms{}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        StringBuilder site = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames.subList(0, Math.min(MAX_FRAMES, frames.size()))) {
+            site.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+        return site.toString();
+    }
+}
@@ -1,17 +1,27 @@
 package com.jmarqb.ms.auth.app.controllers;
 
+import com.jmarqb.ms.auth.app.dtos.request.IntrospectionRequestDto;
 import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RefreshTokenDto;
 import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CurrentUserResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.IntrospectionResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.OpenApiResponses;
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.services.impl.AuthService;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 
@@ -21,18 +31,80 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "User login", description = "Endpoint for user login")
 public class AuthController {
     private final AuthService authService;
+    private final TokenIntrospectionService tokenIntrospectionService;
 
     public AuthController(
-            AuthService authService) {
+            AuthService authService, TokenIntrospectionService tokenIntrospectionService) {
         this.authService = authService;
+        this.tokenIntrospectionService = tokenIntrospectionService;
     }
 
     @PostMapping("/login")
     @ApiResponse(responseCode = "200", description = "User logged in successfully")
     @ApiResponse(responseCode = "401", description = "Invalid credentials",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Error.class)))
-    public ResponseEntity<AuthResponseDto> login(@RequestBody @Valid LoginDto loginRequest) {
-        AuthResponseDto response = authService.login(loginRequest);
+    @ApiResponse(responseCode = "429", description = "Too many login attempts for the email or client address",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Error.class)))
+    public ResponseEntity<AuthResponseDto> login(@RequestBody @Valid LoginDto loginRequest,
+                                                 HttpServletRequest request) {
+        AuthResponseDto response = authService.login(loginRequest, request.getRemoteAddr());
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @PostMapping("/refresh")
+    @ApiResponse(responseCode = "200", description = "Tokens renewed successfully")
+    @ApiResponse(responseCode = "401", description = "Invalid, expired or reused refresh token",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Error.class)))
+    public ResponseEntity<AuthResponseDto> refresh(@RequestBody @Valid RefreshTokenDto refreshRequest) {
+        AuthResponseDto response = authService.refresh(refreshRequest);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @PostMapping("/logout")
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponse(responseCode = "204", description = "Access token and optional refresh token revoked")
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<Void> logout(Authentication authentication,
+                                       @RequestBody(required = false) RefreshTokenDto refreshRequest) {
+        authService.logout(authentication, refreshRequest);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/introspect")
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponse(responseCode = "200", description = "Tokens introspected, one result per token in request order")
+    @ApiResponse(responseCode = "400", description = "Bad request",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Error.class)))
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<IntrospectionResponseDto> introspect(@RequestBody @Valid IntrospectionRequestDto introspectionRequest) {
+        IntrospectionResponseDto response = tokenIntrospectionService.introspect(introspectionRequest.getTokens());
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/me")
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponse(responseCode = "200", description = "Current user resolved from the token")
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<CurrentUserResponseDto> me(Authentication authentication) {
+        CurrentUserResponseDto response = authService.currentUser(authentication);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 }
@@ -2,8 +2,13 @@ package com.jmarqb.ms.auth.app.controllers;
 
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.exceptions.DuplicateKeyException;
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
+import com.jmarqb.ms.auth.app.exceptions.PasswordHashingUnavailableException;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
+import com.jmarqb.ms.auth.app.exceptions.TooManyLoginAttemptsException;
+import com.jmarqb.ms.auth.app.exceptions.UserImportUnavailableException;
 import com.jmarqb.ms.auth.app.exceptions.UserNotFoundException;
+import com.jmarqb.ms.auth.app.security.ErrorResponses;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -26,6 +31,12 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class HandlerExceptionController {
 
+    private final ErrorResponses errorResponses;
+
+    public HandlerExceptionController(ErrorResponses errorResponses) {
+        this.errorResponses = errorResponses;
+    }
+
     @ExceptionHandler({MethodArgumentNotValidException.class})
     public ResponseEntity<Error> handleValidationException(MethodArgumentNotValidException ex) {
         List<Error.FieldError> fieldErrors = ex.getBindingResult()
@@ -50,16 +61,9 @@ public class HandlerExceptionController {
     }
 
     @ExceptionHandler({DuplicateKeyException.class, DataIntegrityViolationException.class})
-    public ResponseEntity<Error> handleDuplicateValidationException(Exception ex) {
-
-        Error response = Error.builder()
-                .timestamp(new Date())
-                .status(HttpStatus.BAD_REQUEST.value())
-                .error("Duplicate Key")
-                .message("Could not execute statement: Duplicate key or Duplicate entry")
-                .build();
-
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    public ResponseEntity<byte[]> handleDuplicateValidationException(Exception ex) {
+        return errorResponses.toResponseEntity(HttpStatus.BAD_REQUEST, "Duplicate Key",
+                "Could not execute statement: Duplicate key or Duplicate entry");
     }
 
     @ExceptionHandler({RoleNotFoundException.class, UserNotFoundException.class})
@@ -88,17 +92,69 @@ public class HandlerExceptionController {
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
-    @ExceptionHandler({BadCredentialsException.class})
-    public ResponseEntity<Error> handleValidationException(BadCredentialsException ex,
-                                                           WebRequest request) {
+    @ExceptionHandler({InvalidCursorException.class})
+    public ResponseEntity<Error> handleInvalidCursorException(InvalidCursorException ex) {
+
+        Error response = Error.builder()
+                .timestamp(new Date())
+                .status(HttpStatus.BAD_REQUEST.value())
+                .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
+                .message(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler({PasswordHashingUnavailableException.class})
+    public ResponseEntity<Error> handlePasswordHashingUnavailableException(PasswordHashingUnavailableException ex) {
 
         Error response = Error.builder()
                 .timestamp(new Date())
-                .status(HttpStatus.UNAUTHORIZED.value())
-                .error("Invalid credentials")
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
                 .message(ex.getMessage())
                 .build();
 
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler({UserImportUnavailableException.class})
+    public ResponseEntity<Error> handleUserImportUnavailableException(UserImportUnavailableException ex) {
+
+        Error response = Error.builder()
+                .timestamp(new Date())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                .message(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(response);
+    }
+
+    @ExceptionHandler({TooManyLoginAttemptsException.class})
+    public ResponseEntity<Error> handleTooManyLoginAttemptsException(TooManyLoginAttemptsException ex) {
+
+        Error response = Error.builder()
+                .timestamp(new Date())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+                .message(ex.getMessage())
+                .build();
+
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(response);
+    }
+
+    @ExceptionHandler({BadCredentialsException.class})
+    public ResponseEntity<byte[]> handleValidationException(BadCredentialsException ex,
+                                                            WebRequest request) {
+        // Messages come from a handful of constants, so the rendered bodies stay cached under a credential flood.
+        return errorResponses.toResponseEntity(HttpStatus.UNAUTHORIZED, "Invalid credentials", ex.getMessage());
     }
 }
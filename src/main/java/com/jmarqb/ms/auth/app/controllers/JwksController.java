@@ -0,0 +1,38 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.jmarqb.ms.auth.app.security.JwtKeyRing;
+import io.jsonwebtoken.security.PublicJwk;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@Tag(name = "JWKS", description = "Public keys for verifying tokens issued by this service")
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    private final CacheControl cacheControl;
+
+    public JwksController(JwtKeyRing keyRing, @Value("${ms-auth.jwt.jwks.max-age:PT1H}") Duration maxAge) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    @ApiResponse(responseCode = "200", description = "JWK Set with the active and still valid signing keys")
+    public ResponseEntity<Map<String, List<PublicJwk<?>>>> jwks() {
+        return ResponseEntity.status(HttpStatus.OK).cacheControl(cacheControl).body(keyRing.jwks());
+    }
+}
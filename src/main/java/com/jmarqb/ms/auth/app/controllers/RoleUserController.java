@@ -3,6 +3,7 @@ package com.jmarqb.ms.auth.app.controllers;
 import com.jmarqb.ms.auth.app.dtos.request.RoleToUsersDto;
 import com.jmarqb.ms.auth.app.dtos.response.OpenApiResponses;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.RoleAssignmentResponseDto;
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.services.UserService;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -31,8 +32,8 @@ public class RoleUserController {
     }
 
     @PostMapping("/add/to-many-users")
-    @ApiResponse(responseCode = "200", description = "Role added to many users successfully")
-    @ApiResponse(responseCode = "404", description = "Role not found or user not found",
+    @ApiResponse(responseCode = "201", description = "Role added to the users that did not have it yet")
+    @ApiResponse(responseCode = "404", description = "Role not found or none of the users found",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = Error.class),
                     examples = @ExampleObject(value = OpenApiResponses.ENTITY_NOT_FOUND_EXAMPLE)))
@@ -47,8 +48,8 @@ public class RoleUserController {
                     schema = @Schema(implementation = Error.class),
                     examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
                     )))
-    public ResponseEntity<PaginatedResponseDto> addRoleToManyUsers(@Valid @RequestBody RoleToUsersDto roleToUsersDto) {
-        PaginatedResponseDto response = userService.addRoleToManyUsers(roleToUsersDto);
+    public ResponseEntity<RoleAssignmentResponseDto> addRoleToManyUsers(@Valid @RequestBody RoleToUsersDto roleToUsersDto) {
+        RoleAssignmentResponseDto response = userService.addRoleToManyUsers(roleToUsersDto);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -5,8 +5,13 @@ import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.OpenApiResponses;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserImportResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserSuggestionDto;
 import com.jmarqb.ms.auth.app.entities.Error;
+import com.jmarqb.ms.auth.app.enums.FileFormat;
 import com.jmarqb.ms.auth.app.services.UserService;
+import com.jmarqb.ms.auth.app.services.impl.UserExportService;
+import com.jmarqb.ms.auth.app.services.impl.UserImportService;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,9 +20,18 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -26,10 +40,20 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name= "User Management", description = "Endpoints for user management")
 public class UserController {
 
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final UserService userService;
 
-    public UserController(UserService userService) {
+    private final UserExportService userExportService;
+
+    private final UserImportService userImportService;
+
+    public UserController(UserService userService, UserExportService userExportService,
+                          UserImportService userImportService) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
     }
 
     @PostMapping("/search")
@@ -50,6 +74,63 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    @PostMapping("/export")
+    @ApiResponse(responseCode = "200", description = "Matching users, streamed as NDJSON or CSV",
+            content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    @ApiResponse(responseCode = "400", description = "Bad request",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.BAD_REQUEST_EXAMPLE)))
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "NDJSON") FileFormat format,
+                                                        @Valid @RequestBody(required = false) UserExportDto filters) {
+        UserExportDto exportFilters = filters != null ? filters : new UserExportDto();
+        String extension = format == FileFormat.CSV ? "csv" : "ndjson";
+        StreamingResponseBody body = out -> userExportService.export(exportFilters, format, out);
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(format == FileFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + extension).build().toString())
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    @ApiResponse(responseCode = "200", description = "Users imported; rejected rows are listed with their line")
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<UserImportResponseDto> importUsers(@RequestParam(defaultValue = "NDJSON") FileFormat format,
+                                                             InputStream body) throws IOException {
+        UserImportResponseDto response = userImportService.importUsers(body, format);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/autocomplete")
+    @ApiResponse(responseCode = "200", description = "Up to limit users whose email or last name starts with q")
+    @ApiResponse(
+            responseCode = "401",
+            description = "Unauthorized",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Error.class),
+                    examples = @ExampleObject(value = OpenApiResponses.UNAUTHORIZED_EXAMPLE
+                    )))
+    public ResponseEntity<List<UserSuggestionDto>> autocomplete(@RequestParam String q,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        List<UserSuggestionDto> response = userService.autocomplete(q, limit);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
     @GetMapping("/{id}")
     @ApiResponse(responseCode = "200", description = "User found successfully")
     @ApiResponse(responseCode = "404", description = "User not found",
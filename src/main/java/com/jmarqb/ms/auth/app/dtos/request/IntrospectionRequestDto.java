@@ -0,0 +1,22 @@
+package com.jmarqb.ms.auth.app.dtos.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectionRequestDto {
+
+    @Schema(description = "access tokens to introspect, between 1 and 100", example = "[\"eyJraWQiOiJrZXktMjAyNiIsImFsZyI6IkVkRFNBIn0...\"]")
+    @Size(min = 1, max = 100, message = "tokens must contain between 1 and 100 tokens")
+    @NotNull(message = "tokens is required")
+    private List<@NotBlank(message = "tokens must not contain blank tokens") String> tokens;
+}
@@ -0,0 +1,19 @@
+package com.jmarqb.ms.auth.app.dtos.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenDto {
+
+    @Schema(description = "refresh token returned by login or a previous refresh", example = "q0Vx3n2Jt7bXyqk5ZyJQm2m1vG9sQ2c3Xo7hT1u8bYc")
+    @NotBlank(message = "refreshToken is required")
+    private String refreshToken;
+}
@@ -1,6 +1,9 @@
 package com.jmarqb.ms.auth.app.dtos.request;
 
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.enums.SearchMode;
 import com.jmarqb.ms.auth.app.enums.Sort;
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
 import com.jmarqb.ms.auth.app.validation.ValueOfEnum;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
@@ -25,4 +28,25 @@ public class SearchBodyDto {
     @ValueOfEnum(enumClass = Sort.class,message = "Sort must be [ASC|DESC]")
     private String sort;
 
+    @Schema(description = "nextCursor of the previous response; when set, page is ignored and the next rows are " +
+            "read by seeking on the id", example = "YTQy")
+    private String cursor;
+
+    @Schema(description = "how to compute total: EXACT, CACHED or ESTIMATED (defaults to ms-auth.search.total.default-strategy)",
+            example = "CACHED")
+    @ValueOfEnum(enumClass = TotalStrategy.class, message = "Total strategy must be [EXACT|CACHED|ESTIMATED]")
+    private String totalStrategy;
+
+    @Schema(description = "user search only: CONTAINS matches the term anywhere in the email or names, PREFIX matches " +
+            "the start of the email or last name (defaults to CONTAINS)", example = "PREFIX")
+    @ValueOfEnum(enumClass = SearchMode.class, message = "Mode must be [CONTAINS|PREFIX]")
+    private String mode;
+
+    @Schema(description = "user search only: keep users of this gender", example = "FEMALE")
+    @ValueOfEnum(enumClass = Gender.class, message = "Gender must be [MALE|FEMALE|NO_DIFFERENTIATION|NO_IDENTIFY_ANY]")
+    private String gender;
+
+    @Schema(description = "user search only: keep users of this country, case-insensitive", example = "Colombia")
+    private String country;
+
 }
@@ -0,0 +1,40 @@
+package com.jmarqb.ms.auth.app.dtos.request;
+
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.enums.SearchMode;
+import com.jmarqb.ms.auth.app.enums.Sort;
+import com.jmarqb.ms.auth.app.validation.ValueOfEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The filters of {@link SearchBodyDto}, without paging: an export always covers every match.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserExportDto {
+
+    @Schema(description = "string to search", example = "abc")
+    private String search;
+
+    @Schema(description = "CONTAINS matches the term anywhere in the email or names, PREFIX matches the start of the " +
+            "email or last name (defaults to CONTAINS)", example = "PREFIX")
+    @ValueOfEnum(enumClass = SearchMode.class, message = "Mode must be [CONTAINS|PREFIX]")
+    private String mode;
+
+    @Schema(description = "keep users of this gender", example = "FEMALE")
+    @ValueOfEnum(enumClass = Gender.class, message = "Gender must be [MALE|FEMALE|NO_DIFFERENTIATION|NO_IDENTIFY_ANY]")
+    private String gender;
+
+    @Schema(description = "keep users of this country, case-insensitive", example = "Colombia")
+    private String country;
+
+    @Schema(description = "order by id (defaults to ASC)", example = "ASC")
+    @ValueOfEnum(enumClass = Sort.class, message = "Sort must be [ASC|DESC]")
+    private String sort;
+}
@@ -0,0 +1,32 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CurrentUserResponseDto {
+
+    @Schema(description = "user id, absent for tokens issued before ids were included", example = "1")
+    private Long id;
+
+    @Schema(description = "email", example = "oR7o0@example.com")
+    private String email;
+
+    @Schema(description = "authorities", example = "[\"USER\"]")
+    private List<String> authorities;
+
+    @Schema(description = "issuedAt", example = "2021-01-01T00:00:00.000Z")
+    private Date issuedAt;
+
+    @Schema(description = "expiresAt", example = "2021-01-01T01:00:00.000Z")
+    private Date expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectionResponseDto {
+
+    @Schema(description = "one result per requested token, in request order")
+    private List<TokenIntrospectionDto> results;
+}
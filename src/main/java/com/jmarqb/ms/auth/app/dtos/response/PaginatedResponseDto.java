@@ -15,9 +15,12 @@ import java.util.List;
 @NoArgsConstructor
 public class PaginatedResponseDto {
 
-    @Schema(description = "total number of elements", example = "10")
+    @Schema(description = "total number of matching elements", example = "10")
     private int total;
 
+    @Schema(description = "strategy that produced total: EXACT, CACHED or ESTIMATED", example = "EXACT")
+    private String totalStrategy;
+
     @Schema(description = "page number", example = "0")
     private int page;
 
@@ -27,6 +30,9 @@ public class PaginatedResponseDto {
     @Schema(description = "data", example = "[]")
     private List<?> data;
 
+    @Schema(description = "cursor for the next page, null on the last page", example = "YTQy")
+    private String nextCursor;
+
     @Schema(description = "timestamp", example = "2021-01-01T00:00:00.000Z")
     private Date timestamp;
 }
@@ -0,0 +1,29 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoleAssignmentResponseDto {
+
+    @Schema(description = "Role assigned", example = "4")
+    private Long roleId;
+
+    @Schema(description = "Distinct user ids requested", example = "3")
+    private int requested;
+
+    @Schema(description = "Users that got the role", example = "1")
+    private int inserted;
+
+    @Schema(description = "Users that already had the role", example = "1")
+    private int alreadyPresent;
+
+    @Schema(description = "Ids that are not an active user", example = "1")
+    private int notFound;
+}
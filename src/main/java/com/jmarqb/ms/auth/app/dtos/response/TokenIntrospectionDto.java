@@ -0,0 +1,47 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Introspection result for one token, named after RFC 7662. Inactive tokens only carry {@code active=false}.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospectionDto {
+
+    @Schema(description = "whether the token is valid, unexpired and not revoked", example = "true")
+    private boolean active;
+
+    @Schema(description = "subject (user email)", example = "oR7o0@example.com")
+    private String sub;
+
+    @Schema(description = "user id", example = "1")
+    private Long uid;
+
+    @Schema(description = "authorities", example = "[\"USER\"]")
+    private List<String> authorities;
+
+    @Schema(description = "expiry, seconds since the epoch", example = "1767225600")
+    private Long exp;
+
+    @Schema(description = "issued at, seconds since the epoch", example = "1767224700")
+    private Long iat;
+
+    @Schema(description = "token id", example = "3f1c2a9e-6c1d-4a8b-9d0e-2b7f5c4e8a11")
+    private String jti;
+
+    // A new instance per call: the DTO is mutable, so a shared constant could be changed by any caller.
+    public static TokenIntrospectionDto inactive() {
+        return TokenIntrospectionDto.builder().active(false).build();
+    }
+}
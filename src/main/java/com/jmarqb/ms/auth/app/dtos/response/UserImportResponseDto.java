@@ -0,0 +1,47 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportResponseDto {
+
+    @Schema(description = "Rows read from the file", example = "1000")
+    private int received;
+
+    @Schema(description = "Users created", example = "998")
+    private int imported;
+
+    @Schema(description = "Rows rejected", example = "2")
+    private int failed;
+
+    @Schema(description = "True when more rows failed than are listed in errors", example = "false")
+    private boolean errorsTruncated;
+
+    @Schema(description = "Rejected rows with the reason")
+    private List<RowError> errors;
+
+    @Builder
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+
+        @Schema(description = "Line of the file the row starts on", example = "12")
+        private int line;
+
+        @Schema(description = "Email of the row, when it could be read", example = "oR7o0@example.com")
+        private String email;
+
+        @Schema(description = "Reason", example = "email: the email already exists")
+        private String message;
+    }
+}
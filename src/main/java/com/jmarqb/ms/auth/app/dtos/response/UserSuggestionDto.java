@@ -0,0 +1,20 @@
+package com.jmarqb.ms.auth.app.dtos.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestionDto {
+
+    @Schema(description = "user id", example = "1")
+    private Long id;
+
+    @Schema(description = "name and email to show in the suggestion list", example = "John Doe <john@example.com>")
+    private String display;
+}
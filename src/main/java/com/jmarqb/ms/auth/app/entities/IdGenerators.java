@@ -0,0 +1,16 @@
+package com.jmarqb.ms.auth.app.entities;
+
+/**
+ * Pooled id allocation shared by the entities written in bulk. Each instance reserves {@link #ALLOCATION_SIZE} ids
+ * per round trip to the {@value #TABLE} table, so inserts need no generated key back and Hibernate can batch them.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,29 @@
+package com.jmarqb.ms.auth.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Lease on a background job that only one instance at a time should run. The holder extends {@code lockedUntil} while
+ * it works; once that passes without renewal, any instance may take the job over.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "job_locks")
+public class JobLock {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "locked_by", nullable = false, length = 64)
+    private String lockedBy;
+
+    @Column(name = "locked_until", nullable = false)
+    private Date lockedUntil;
+}
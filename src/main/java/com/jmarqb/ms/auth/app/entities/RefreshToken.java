@@ -0,0 +1,47 @@
+package com.jmarqb.ms.auth.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_family_id", columnList = "family_id"),
+        // Named apart from users' idx_email: H2 index names are unique per schema, not per table.
+        @Index(name = "idx_refresh_token_email", columnList = "email"),
+        @Index(name = "idx_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+
+    @Column(name = "used", nullable = false)
+    private boolean used;
+
+    @Column(name = "revoked", nullable = false)
+    private boolean revoked;
+}
@@ -0,0 +1,47 @@
+package com.jmarqb.ms.auth.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Denylist entry. A {@link Type#TOKEN} entry revokes a single access token by its {@code jti}; a
+ * {@link Type#SUBJECT} entry revokes every access token of a user issued up to {@code revokedAt}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_type_value", columnList = "type, revoked_value"),
+        @Index(name = "idx_revoked_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_at", columnList = "revoked_at")
+})
+public class RevokedToken {
+
+    public enum Type {
+        TOKEN,
+        SUBJECT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "revoked_value", nullable = false)
+    private String value;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Date revokedAt;
+
+    // Once every token the entry covers has expired the entry is useless and gets pruned.
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+}
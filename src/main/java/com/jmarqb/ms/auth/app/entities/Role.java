@@ -16,8 +16,12 @@ import java.util.List;
 })
 public class Role {
 
+    // One id per round trip rather than pooled blocks: roles are rare and never bulk-inserted, and their ids must stay
+    // small enough for the bitmask authorities claim.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "roles")
+    @TableGenerator(name = "roles", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "roles", allocationSize = 1)
     @Column(name = "id")
     private Long id;
 
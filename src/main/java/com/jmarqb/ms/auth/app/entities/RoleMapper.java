@@ -23,6 +23,8 @@ public interface RoleMapper {
     CreateRoleResponseDto toResponse(Role role);
 
     @Mapping(target = "data", source = "roles")
+    @Mapping(target = "nextCursor", ignore = true)
+    @Mapping(target = "totalStrategy", ignore = true)
     PaginatedResponseDto toPaginatedResponse(List<?> roles, int total, int page, int size, Date timestamp);
 
 }
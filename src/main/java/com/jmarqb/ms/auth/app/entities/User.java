@@ -10,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 @Data
 @Builder
@@ -22,12 +23,18 @@ import java.util.List;
         @Index(name = "idx_email", columnList = "email"),
         @Index(name = "idx_phone", columnList = "phone"),
         @Index(name = "idx_deleted", columnList = "deleted"),
-        @Index(name = "idx_gender", columnList = "gender")
+        @Index(name = "idx_gender", columnList = "gender"),
+        @Index(name = "idx_email_normalized_id", columnList = "email_normalized, id"),
+        @Index(name = "idx_lastname_normalized_id", columnList = "lastname_normalized, id"),
+        @Index(name = "idx_updated_at", columnList = "updated_at")
 })
 public class User implements UserDetails{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users")
+    @TableGenerator(name = "users", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "users",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "id")
     private Long id;
 
@@ -61,6 +68,22 @@ public class User implements UserDetails{
     @Column(name = "country")
     private String country;
 
+    @Column(name = "created_at")
+    private Date createdAt;
+
+    // Set on every entity write. Ids are allocated in blocks per instance, so only this tells other instances which
+    // users are new or changed. Bulk JPQL updates bypass it; none of them changes the email, names, gender, country
+    // or deleted flag.
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
+    // Lower-cased copies kept for prefix searches, so LIKE 'x%' is an index range scan.
+    @Column(name = "email_normalized")
+    private String emailNormalized;
+
+    @Column(name = "lastname_normalized")
+    private String lastNameNormalized;
+
     @ManyToMany
     @JoinTable(
             name = "users_roles",
@@ -71,6 +94,26 @@ public class User implements UserDetails{
     @ToString.Exclude
     private List<Role> roles;
 
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = new Date();
+        }
+        updatedAt = createdAt;
+        normalize();
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = new Date();
+        normalize();
+    }
+
+    void normalize() {
+        emailNormalized = email != null ? email.toLowerCase(Locale.ROOT) : null;
+        lastNameNormalized = lastName != null ? lastName.toLowerCase(Locale.ROOT) : null;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles.stream()
@@ -0,0 +1,32 @@
+package com.jmarqb.ms.auth.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Tells every instance to drop its cached copy of a user, or of every user when {@code email} is null. Entries are
+ * pruned once they are older than the cache TTL, since no copy cached before them can still be alive.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_invalidations", indexes = {
+        @Index(name = "idx_user_invalidations_at", columnList = "invalidated_at")
+})
+public class UserInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "invalidated_at", nullable = false)
+    private Date invalidatedAt;
+}
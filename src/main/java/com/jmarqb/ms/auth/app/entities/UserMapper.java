@@ -16,6 +16,11 @@ public interface UserMapper {
 
     UserMapper INSTANCE = Mappers.getMapper(UserMapper.class);
 
+    // Set by the entity's lifecycle callbacks.
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "emailNormalized", ignore = true)
+    @Mapping(target = "lastNameNormalized", ignore = true)
     User toEntity(CreateUserDto createUserDto);
 
     @Mapping(target = "id", ignore = false)
@@ -26,6 +31,8 @@ public interface UserMapper {
     UserRole map(Role role);
 
     @Mapping(target = "data", source = "users")
+    @Mapping(target = "nextCursor", ignore = true)
+    @Mapping(target = "totalStrategy", ignore = true)
     PaginatedResponseDto toPaginatedResponse(List<?> users, int total, int page, int size, Date timestamp);
 
 }
@@ -0,0 +1,6 @@
+package com.jmarqb.ms.auth.app.enums;
+
+public enum FileFormat {
+    NDJSON,
+    CSV;
+}
@@ -0,0 +1,7 @@
+package com.jmarqb.ms.auth.app.enums;
+
+public enum TotalStrategy {
+    EXACT,
+    CACHED,
+    ESTIMATED;
+}
@@ -0,0 +1,7 @@
+package com.jmarqb.ms.auth.app.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jmarqb.ms.auth.app.exceptions;
+
+public class UserImportUnavailableException extends RuntimeException {
+    public UserImportUnavailableException(String message) {
+        super(message);
+    }
+}
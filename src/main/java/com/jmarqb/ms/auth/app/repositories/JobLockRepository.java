@@ -0,0 +1,26 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.entities.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    // Takes or renews the lease when this instance holds it or it has expired; 0 when another instance holds it.
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLock l SET l.lockedBy = ?2, l.lockedUntil = ?3 " +
+            "WHERE l.name = ?1 AND (l.lockedBy = ?2 OR l.lockedUntil < ?4)")
+    int claim(String name, String owner, Date until, Date now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLock l SET l.lockedUntil = ?3 WHERE l.name = ?1 AND l.lockedBy = ?2")
+    int release(String name, String owner, Date now);
+}
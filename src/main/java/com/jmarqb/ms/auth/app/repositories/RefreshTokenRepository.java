@@ -0,0 +1,32 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.used = true WHERE r.id = ?1 AND r.used = false AND r.revoked = false")
+    int markUsed(Long id);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = ?1")
+    int revokeFamily(String familyId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.email = ?1 AND r.revoked = false")
+    int revokeByEmail(String email);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < ?1")
+    int deleteExpired(Date now);
+}
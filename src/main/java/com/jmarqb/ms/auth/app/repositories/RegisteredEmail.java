@@ -0,0 +1,4 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+public record RegisteredEmail(Long id, String email) {
+}
@@ -0,0 +1,32 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.entities.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByTypeAndValue(RevokedToken.Type type, String value);
+
+    boolean existsByTypeAndValueAndRevokedAtGreaterThanEqual(RevokedToken.Type type, String value, Date issuedAt);
+
+    boolean existsByTypeAndValueAndExpiresAtAfter(RevokedToken.Type type, String value, Date now);
+
+    Slice<RevokedToken> findByExpiresAtAfter(Date now, Pageable pageable);
+
+    List<RevokedToken> findByRevokedAtGreaterThanEqual(Date since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < ?1")
+    int deleteExpired(Date now);
+}
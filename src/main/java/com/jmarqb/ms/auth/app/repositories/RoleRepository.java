@@ -18,8 +18,29 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
     @Query("SELECT r FROM Role r WHERE r.deleted = false AND lower(r.name) LIKE lower(concat('%', ?1, '%'))")
     List<Role> searchAllByRegex(String name, Pageable pageable);
 
+    @Query("SELECT count(r) FROM Role r WHERE r.deleted = false")
+    long countAll();
+
+    @Query("SELECT count(r) FROM Role r WHERE r.deleted = false AND lower(r.name) LIKE lower(concat('%', ?1, '%'))")
+    long countAllByRegex(String name);
+
+    // Keyset variants: the caller passes an unpaged limit sorted by id, so the database seeks on the primary key.
+    @Query("SELECT r FROM Role r WHERE r.deleted = false AND r.id > ?1")
+    List<Role> searchAllAfter(Long id, Pageable pageable);
+
+    @Query("SELECT r FROM Role r WHERE r.deleted = false AND r.id < ?1")
+    List<Role> searchAllBefore(Long id, Pageable pageable);
+
+    @Query("SELECT r FROM Role r WHERE r.deleted = false AND r.id > ?2 AND lower(r.name) LIKE lower(concat('%', ?1, '%'))")
+    List<Role> searchAllByRegexAfter(String name, Long id, Pageable pageable);
+
+    @Query("SELECT r FROM Role r WHERE r.deleted = false AND r.id < ?2 AND lower(r.name) LIKE lower(concat('%', ?1, '%'))")
+    List<Role> searchAllByRegexBefore(String name, Long id, Pageable pageable);
+
     Role findByIdAndDeletedFalse(Long id);
 
+    List<Role> findAllByDeletedFalse();
+
     @Query("SELECT r FROM Role r WHERE r.deleted = false AND r.name = ?1")
     Optional<Role> findByName(String name);
 
@@ -0,0 +1,13 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+
+public record SearchableUser(Long id, String email, String firstName, String lastName, Gender gender,
+                             String country) {
+
+    public static SearchableUser of(User user) {
+        return new SearchableUser(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getGender(), user.getCountry());
+    }
+}
@@ -0,0 +1,22 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.entities.UserInvalidation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface UserInvalidationRepository extends JpaRepository<UserInvalidation, Long> {
+
+    List<UserInvalidation> findByInvalidatedAtGreaterThanEqual(Date since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserInvalidation i WHERE i.invalidatedAt < ?1")
+    int deleteOlderThan(Date before);
+}
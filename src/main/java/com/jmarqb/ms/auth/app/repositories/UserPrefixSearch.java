@@ -0,0 +1,21 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.enums.Gender;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Pages of a prefix search, read one normalized column at a time and merged by the caller. The caller passes a
+ * lower-cased pattern ending in '%', with wildcards escaped by '!', and a limit sorted by id. Ids are bounded by
+ * {@code from} and {@code to}, both exclusive; {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} leave them open.
+ * A null gender or country does not filter.
+ */
+public interface UserPrefixSearch {
+
+    List<Long> findIdsByEmailPrefix(String prefix, Long from, Long to, Gender gender, String country,
+                                    Pageable pageable);
+
+    List<Long> findIdsByLastNamePrefix(String prefix, Long from, Long to, Gender gender, String country,
+                                       Pageable pageable);
+}
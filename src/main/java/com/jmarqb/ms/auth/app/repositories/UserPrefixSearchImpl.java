@@ -0,0 +1,69 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+import com.jmarqb.ms.auth.app.enums.Gender;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds each prefix query with only the conditions that apply. A {@code :param IS NULL OR} disjunction would keep
+ * the optimizer from the normalized column's {@code (column, id)} index, and open id bounds would still be compared.
+ */
+class UserPrefixSearchImpl implements UserPrefixSearch {
+
+    private final EntityManager entityManager;
+
+    UserPrefixSearchImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> findIdsByEmailPrefix(String prefix, Long from, Long to, Gender gender, String country,
+                                           Pageable pageable) {
+        return findIdsByPrefix("emailNormalized", prefix, from, to, gender, country, pageable);
+    }
+
+    @Override
+    public List<Long> findIdsByLastNamePrefix(String prefix, Long from, Long to, Gender gender, String country,
+                                              Pageable pageable) {
+        return findIdsByPrefix("lastNameNormalized", prefix, from, to, gender, country, pageable);
+    }
+
+    private List<Long> findIdsByPrefix(String column, String prefix, Long from, Long to, Gender gender,
+                                       String country, Pageable pageable) {
+        StringBuilder jpql = new StringBuilder("SELECT r.id FROM User r WHERE r.").append(column)
+                .append(" LIKE :prefix ESCAPE '!' AND r.deleted = false");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("prefix", prefix);
+        if (from != null && from != Long.MIN_VALUE) {
+            jpql.append(" AND r.id > :from");
+            parameters.put("from", from);
+        }
+        if (to != null && to != Long.MAX_VALUE) {
+            jpql.append(" AND r.id < :to");
+            parameters.put("to", to);
+        }
+        if (gender != null) {
+            jpql.append(" AND r.gender = :gender");
+            parameters.put("gender", gender);
+        }
+        if (country != null) {
+            jpql.append(" AND lower(r.country) = lower(:country)");
+            parameters.put("country", country);
+        }
+        Sort.Order id = pageable.getSort().getOrderFor("id");
+        jpql.append(" ORDER BY r.id ").append(id != null && id.isDescending() ? "DESC" : "ASC");
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+}
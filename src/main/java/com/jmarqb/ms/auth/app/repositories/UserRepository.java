@@ -1,36 +1,146 @@
 package com.jmarqb.ms.auth.app.repositories;
 
 import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserPrefixSearch {
 
     boolean existsByEmail(String email);
     boolean existsByPhone(String phone);
 
     Optional<User> findByEmail(String email);
 
-    @Query("SELECT r FROM User r WHERE r.deleted = false")
-    List<User> searchAll(Pageable pageable);
+    // Search conditions; a null gender or country does not filter.
+    String SEARCH_FILTERS = "r.deleted = false AND (:gender IS NULL OR r.gender = :gender) " +
+            "AND (:country IS NULL OR lower(r.country) = lower(:country))";
+    String SEARCH_MATCHES = "(lower(r.email) LIKE lower(concat('%', :search, '%')) " +
+            "OR lower(r.firstName) LIKE lower(concat('%', :search, '%')) OR lower(r.lastName) LIKE lower(concat('%', :search, '%')))";
 
-    @Query("SELECT r FROM User r WHERE r.deleted = false AND lower(r.email) LIKE lower(concat('%', ?1, '%')) " +
-            "OR lower(r.firstName) LIKE lower(concat('%', ?1, '%')) OR lower(r.lastName) LIKE lower(concat('%', ?1, '%'))")
-    List<User> searchAllByRegex(String regex, Pageable pageable);
+    @Query("SELECT r FROM User r WHERE " + SEARCH_FILTERS)
+    List<User> searchAll(@Param("gender") Gender gender, @Param("country") String country, Pageable pageable);
 
+    @Query("SELECT r FROM User r WHERE " + SEARCH_FILTERS + " AND " + SEARCH_MATCHES)
+    List<User> searchAllByRegex(@Param("search") String regex, @Param("gender") Gender gender,
+                                @Param("country") String country, Pageable pageable);
+
+    @Query("SELECT count(r) FROM User r WHERE " + SEARCH_FILTERS)
+    long countAll(@Param("gender") Gender gender, @Param("country") String country);
+
+    @Query("SELECT count(r) FROM User r WHERE " + SEARCH_FILTERS + " AND " + SEARCH_MATCHES)
+    long countAllByRegex(@Param("search") String regex, @Param("gender") Gender gender,
+                         @Param("country") String country);
+
+    // Keyset variants: the caller passes an unpaged limit sorted by id, so the database seeks on the primary key.
+    @Query("SELECT r FROM User r WHERE r.id > :id AND " + SEARCH_FILTERS)
+    List<User> searchAllAfter(@Param("id") Long id, @Param("gender") Gender gender,
+                              @Param("country") String country, Pageable pageable);
+
+    @Query("SELECT r FROM User r WHERE r.id < :id AND " + SEARCH_FILTERS)
+    List<User> searchAllBefore(@Param("id") Long id, @Param("gender") Gender gender,
+                               @Param("country") String country, Pageable pageable);
+
+    @Query("SELECT r FROM User r WHERE r.id > :id AND " + SEARCH_FILTERS + " AND " + SEARCH_MATCHES)
+    List<User> searchAllByRegexAfter(@Param("search") String regex, @Param("id") Long id,
+                                     @Param("gender") Gender gender, @Param("country") String country,
+                                     Pageable pageable);
+
+    @Query("SELECT r FROM User r WHERE r.id < :id AND " + SEARCH_FILTERS + " AND " + SEARCH_MATCHES)
+    List<User> searchAllByRegexBefore(@Param("search") String regex, @Param("id") Long id,
+                                      @Param("gender") Gender gender, @Param("country") String country,
+                                      Pageable pageable);
+
+    // Prefix mode: the caller passes a lower-cased pattern ending in '%', with wildcards escaped by '!'.
+    String SEARCH_PREFIX = "(r.emailNormalized LIKE :prefix ESCAPE '!' OR r.lastNameNormalized LIKE :prefix ESCAPE '!')";
+
+    @Query("SELECT count(r) FROM User r WHERE " + SEARCH_FILTERS + " AND " + SEARCH_PREFIX)
+    long countAllByPrefix(@Param("prefix") String prefix, @Param("gender") Gender gender,
+                          @Param("country") String country);
+
+    // Autocomplete reads each normalized column on its own, so both stay a range scan in index order.
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.UserSuggestion(u.id, u.email, u.firstName, u.lastName) " +
+            "FROM User u WHERE u.deleted = false AND u.emailNormalized LIKE ?1 ESCAPE '!' ORDER BY u.emailNormalized")
+    List<UserSuggestion> suggestByEmail(String prefix, Pageable pageable);
+
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.UserSuggestion(u.id, u.email, u.firstName, u.lastName) " +
+            "FROM User u WHERE u.deleted = false AND u.lastNameNormalized LIKE ?1 ESCAPE '!' " +
+            "ORDER BY u.lastNameNormalized, u.id")
+    List<UserSuggestion> suggestByLastName(String prefix, Pageable pageable);
+
+    @Query("SELECT min(u.id) FROM User u WHERE u.emailNormalized IS NULL")
+    Long findMinIdWithoutSearchColumns();
+
+    @Query("SELECT max(u.id) FROM User u WHERE u.emailNormalized IS NULL")
+    Long findMaxIdWithoutSearchColumns();
+
+    // Fills the normalized columns of rows written before they existed, one id range per transaction.
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.emailNormalized = lower(u.email), u.lastNameNormalized = lower(u.lastName) " +
+            "WHERE u.emailNormalized IS NULL AND u.id > ?1 AND u.id <= ?2")
+    int normalizeSearchColumns(Long from, Long to);
+
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.SearchableUser(u.id, u.email, u.firstName, u.lastName, " +
+            "u.gender, u.country) FROM User u WHERE u.deleted = false AND u.id > ?1 ORDER BY u.id")
+    List<SearchableUser> findSearchableUsersAfter(Long id, Pageable pageable);
+
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.SearchableUser(u.id, u.email, u.firstName, u.lastName, " +
+            "u.gender, u.country) FROM User u WHERE u.deleted = false AND u.updatedAt >= ?1 AND u.id > ?2 ORDER BY u.id")
+    List<SearchableUser> findSearchableUsersUpdatedSince(Date since, Long id, Pageable pageable);
+
+    @Query("SELECT u.id FROM User u WHERE u.deleted = true AND u.updatedAt >= ?1 AND u.id > ?2 ORDER BY u.id")
+    List<Long> findDeletedUserIdsUpdatedSince(Date since, Long id, Pageable pageable);
+
+    long countByDeletedFalse();
+
+    @EntityGraph(attributePaths = "roles")
     User findByIdAndDeletedFalse(Long id);
 
+    // Loads users with their roles in one statement; for users already in the persistence context this initializes
+    // their roles in place.
+    @EntityGraph(attributePaths = "roles")
+    @Query("SELECT u FROM User u WHERE u.id IN :ids")
+    List<User> findAllWithRolesByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT r FROM User r WHERE r.deleted = false AND r.email = ?1")
     Optional<User> findByUsername(String username);
 
 
+    @Modifying
+    @Query("UPDATE User u SET u.password = ?2 WHERE u.email = ?1 AND u.deleted = false")
+    int updatePassword(String email, String encodedPassword);
+
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.RegisteredEmail(u.id, u.email) FROM User u " +
+            "WHERE u.deleted = false AND u.id > ?1 ORDER BY u.id")
+    List<RegisteredEmail> findRegisteredEmailsAfter(Long id, Pageable pageable);
+
+    @Query("SELECT new com.jmarqb.ms.auth.app.repositories.RegisteredEmail(u.id, u.email) FROM User u " +
+            "WHERE u.deleted = false AND u.updatedAt >= ?1 AND u.id > ?2 ORDER BY u.id")
+    List<RegisteredEmail> findRegisteredEmailsUpdatedSince(Date since, Long id, Pageable pageable);
+
+    @Query("SELECT u.email FROM User u WHERE u.deleted = false AND u.id IN :ids")
+    List<String> findActiveEmailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // INSERT IGNORE skips pairs that already exist, including ones a concurrent request inserts meanwhile, instead of
+    // failing the transaction on the unique constraint; the count only includes rows actually inserted.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO users_roles (user_id, role_id) SELECT u.id, :roleId FROM users u " +
+            "WHERE u.deleted = false AND u.id IN :ids", nativeQuery = true)
+    int addRoleToActiveUsers(@Param("roleId") Long roleId, @Param("ids") Collection<Long> ids);
+
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email")
     Optional<User> findByEmailWithRoles(@Param("email") String email);
 }
@@ -0,0 +1,4 @@
+package com.jmarqb.ms.auth.app.repositories;
+
+public record UserSuggestion(Long id, String email, String firstName, String lastName) {
+}
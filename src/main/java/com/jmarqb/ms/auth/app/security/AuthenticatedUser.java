@@ -0,0 +1,31 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * {@link User} that also carries the database id, so it can be written into issued tokens.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Returns a copy that keeps the password even after this instance had its credentials erased.
+     */
+    public AuthenticatedUser copy() {
+        return new AuthenticatedUser(id, getUsername(), getPassword() == null ? "" : getPassword(), getAuthorities());
+    }
+}
@@ -0,0 +1,132 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.jmarqb.ms.auth.app.exceptions.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead around a slow, CPU-bound {@link PasswordEncoder} such as BCrypt.
+ * <p>
+ * Hashing and verification run on a fixed pool with a bounded queue instead of the calling thread, so a burst of
+ * logins or signups cannot occupy every request thread. When the queue is full, or a task has not started within
+ * {@code maxQueueWait}, the call fails fast with {@link PasswordHashingUnavailableException}, answered as 503, so a
+ * request thread waits at most that long plus one hash. Batch work that may wait uses {@link #delegate()} on its own
+ * pool instead. Queue depth and
+ * pool usage are published as {@code executor.*} metrics with {@code name=passwordHashing}, hashing latency as
+ * {@code password.hashing} and rejections as {@code password.hashing.rejected}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitNanos;
+
+    private volatile Timer encodeTimer;
+    private volatile Timer matchesTimer;
+    private volatile Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxQueueWait) {
+        this.delegate = delegate;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * The wrapped encoder, for batch work that brings its own pool and must not compete with logins for this one.
+     */
+    public PasswordEncoder delegate() {
+        return delegate;
+    }
+
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "passwordHashing", List.of()).bindTo(registry);
+        encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(registry);
+        matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(registry);
+        rejectedCounter = Counter.builder("password.hashing.rejected").register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Supplier<T> task, Timer timer) {
+        // Claimed by whichever comes first: the worker starting the task or the caller giving up on it.
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                return timer == null ? task.get() : timer.record(task);
+            });
+        } catch (RejectedExecutionException e) {
+            throw rejected("Password hashing capacity exhausted", e);
+        }
+
+        try {
+            try {
+                return future.get(maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    future.cancel(false);
+                    throw rejected("Password hashing queue wait exceeded", e);
+                }
+                // Already hashing, which takes one hash's time.
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private PasswordHashingUnavailableException rejected(String message, Exception cause) {
+        Counter counter = rejectedCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        return new PasswordHashingUnavailableException(message, cause);
+    }
+}
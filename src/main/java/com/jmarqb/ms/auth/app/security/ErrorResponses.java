@@ -0,0 +1,112 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jmarqb.ms.auth.app.entities.Error;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders {@link Error} bodies for the fixed-message failures (invalid tokens, the authentication entry point, bad
+ * credentials) without building an {@code Error} or an {@code ObjectMapper} per response.
+ * <p>
+ * Everything but the timestamp is serialized once per distinct status, error and message with the application's
+ * {@code ObjectMapper}, so the output matches the bodies written by {@code HandlerExceptionController}.
+ */
+public class ErrorResponses {
+
+    public static final String UNAUTHORIZED = HttpStatus.UNAUTHORIZED.getReasonPhrase();
+
+    static final int MAX_CACHED = 64;
+
+    private static final byte[] TIMESTAMP_PREFIX = "{\"timestamp\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL_TIMESTAMP_PREFIX = "{\"timestamp\":null".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectWriter errorWriter;
+    private final ObjectWriter dateWriter;
+    private final Map<Key, byte[]> suffixes = new ConcurrentHashMap<>();
+
+    public ErrorResponses(ObjectMapper objectMapper) {
+        this.errorWriter = objectMapper.writerFor(Error.class);
+        this.dateWriter = objectMapper.writerFor(Date.class);
+        // Fails at startup rather than on the first 401 if the mapper's configuration breaks the layout.
+        Key unauthorized = new Key(HttpStatus.UNAUTHORIZED.value(), UNAUTHORIZED, UNAUTHORIZED);
+        suffixes.put(unauthorized, suffix(unauthorized));
+    }
+
+    /**
+     * Writes the error to the response and commits it; the caller must not continue the filter chain.
+     */
+    public void write(HttpServletResponse response, HttpStatus status, String error, String message)
+            throws IOException {
+        byte[] body = body(status, error, message);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    public ResponseEntity<byte[]> toResponseEntity(HttpStatus status, String error, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(status, error, message));
+    }
+
+    byte[] body(HttpStatus status, String error, String message) {
+        Key key = new Key(status.value(), error, message);
+        byte[] suffix = suffixes.get(key);
+        if (suffix == null) {
+            suffix = suffix(key);
+            if (suffixes.size() < MAX_CACHED) {
+                suffixes.putIfAbsent(key, suffix);
+            }
+        }
+        byte[] timestamp = serialize(dateWriter, new Date());
+
+        byte[] body = Arrays.copyOf(TIMESTAMP_PREFIX, TIMESTAMP_PREFIX.length + timestamp.length + suffix.length);
+        System.arraycopy(timestamp, 0, body, TIMESTAMP_PREFIX.length, timestamp.length);
+        System.arraycopy(suffix, 0, body, TIMESTAMP_PREFIX.length + timestamp.length, suffix.length);
+        return body;
+    }
+
+    int cachedSize() {
+        return suffixes.size();
+    }
+
+    // The body without a timestamp, minus its leading {"timestamp":null
+    private byte[] suffix(Key key) {
+        byte[] template = serialize(errorWriter, Error.builder()
+                .status(key.status())
+                .error(key.error())
+                .message(key.message())
+                .build());
+        if (!Arrays.equals(template, 0, NULL_TIMESTAMP_PREFIX.length,
+                NULL_TIMESTAMP_PREFIX, 0, NULL_TIMESTAMP_PREFIX.length)) {
+            throw new IllegalStateException("Error must serialize with the timestamp first and nulls included");
+        }
+        return Arrays.copyOfRange(template, NULL_TIMESTAMP_PREFIX.length, template.length);
+    }
+
+    private static byte[] serialize(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Key(int status, String error, String message) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.jmarqb.ms.auth.app.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.util.*;
+
+/**
+ * Asymmetric keys used to sign and verify JWTs, identified by their {@code kid}.
+ * <p>
+ * Keys are loaded from a local keystore: the entry named by {@code ms-auth.jwt.keystore.active-alias} signs new
+ * tokens, and every other entry (private key or trusted certificate) stays valid for verification until it is
+ * removed. The alias is used as the {@code kid}. Without a keystore an ephemeral RSA key is generated, which is only
+ * suitable for development and tests because tokens do not survive a restart nor work across replicas.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    private final String activeKeyId;
+    private final PrivateKey signingKey;
+    private final Map<String, PublicKey> verificationKeys;
+    private final Map<String, List<PublicJwk<?>>> jwks;
+
+    public JwtKeyRing(@Value("${ms-auth.jwt.keystore.path:}") String path,
+                      @Value("${ms-auth.jwt.keystore.type:PKCS12}") String type,
+                      @Value("${ms-auth.jwt.keystore.password:}") String password,
+                      @Value("${ms-auth.jwt.keystore.active-alias:}") String activeAlias) {
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        if (path.isBlank()) {
+            log.warn("No JWT keystore configured, signing with an ephemeral RSA key");
+            KeyPair keyPair = Jwts.SIG.RS256.keyPair().build();
+            this.activeKeyId = "ephemeral-" + UUID.randomUUID();
+            this.signingKey = keyPair.getPrivate();
+            publicKeys.put(activeKeyId, keyPair.getPublic());
+        } else {
+            KeyStore keyStore = load(path, type, password);
+            this.activeKeyId = activeAlias;
+            this.signingKey = readSigningKey(keyStore, activeAlias, password);
+            readPublicKeys(keyStore, publicKeys);
+        }
+        this.verificationKeys = Map.copyOf(publicKeys);
+        this.jwks = Map.of("keys", publicKeys.entrySet().stream()
+                .<PublicJwk<?>>map(entry -> Jwks.builder().key(entry.getValue())
+                        .id(entry.getKey())
+                        .publicKeyUse("sig")
+                        .build())
+                .toList());
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    public PrivateKey signingKey() {
+        return signingKey;
+    }
+
+    public PublicKey verificationKey(String keyId) {
+        return verificationKeys.get(keyId);
+    }
+
+    /**
+     * Public verification keys as a JWK Set document.
+     */
+    public Map<String, List<PublicJwk<?>>> jwks() {
+        return jwks;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String keyId = header.getKeyId();
+        PublicKey key = keyId == null ? null : verificationKeys.get(keyId);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key: " + keyId);
+        }
+        return key;
+    }
+
+    private static KeyStore load(String path, String type, String password) {
+        Resource resource = new DefaultResourceLoader().getResource(path);
+        try (InputStream in = resource.getInputStream()) {
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(in, password.toCharArray());
+            return keyStore;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to load the JWT keystore " + path, e);
+        }
+    }
+
+    private static PrivateKey readSigningKey(KeyStore keyStore, String alias, String password) {
+        try {
+            if (!(keyStore.getKey(alias, password.toCharArray()) instanceof PrivateKey key)) {
+                throw new IllegalStateException("The active JWT key alias '" + alias + "' is not a private key entry");
+            }
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to read the active JWT key " + alias, e);
+        }
+    }
+
+    private static void readPublicKeys(KeyStore keyStore, Map<String, PublicKey> publicKeys) {
+        try {
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate != null) {
+                    publicKeys.put(alias, certificate.getPublicKey());
+                }
+            }
+        } catch (KeyStoreException e) {
+            throw new IllegalStateException("Unable to read the JWT verification keys", e);
+        }
+    }
+}
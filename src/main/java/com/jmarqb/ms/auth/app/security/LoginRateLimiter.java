@@ -0,0 +1,139 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.jmarqb.ms.auth.app.exceptions.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory login throttling with one token bucket per client address and one per email and client address.
+ * <p>
+ * The email bucket is keyed by the address too, so attempts against an account from other addresses cannot use up
+ * the owner's attempts and lock them out; guesses spread over many addresses are bounded by each address's bucket.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (GCRA), so taking a token is one
+ * compare-and-set with no lock and no allocation. Buckets live in bounded Caffeine caches whose entries expire once
+ * they have been idle for a full refill period, when they would be full again anyway. Rejections are published as
+ * {@code login.rate_limit.rejected} and the number of tracked buckets as {@code login.rate_limit.buckets}, both
+ * tagged with {@code limit=address|email}.
+ */
+@Component
+public class LoginRateLimiter implements MeterBinder {
+
+    private final boolean enabled;
+    private final Limit addressLimit;
+    private final Limit emailLimit;
+
+    @Autowired
+    public LoginRateLimiter(@Value("${ms-auth.login-rate-limit.enabled:true}") boolean enabled,
+                            @Value("${ms-auth.login-rate-limit.per-address.capacity:100}") int addressCapacity,
+                            @Value("${ms-auth.login-rate-limit.per-address.refill-period:PT1M}") Duration addressRefillPeriod,
+                            @Value("${ms-auth.login-rate-limit.per-email.capacity:10}") int emailCapacity,
+                            @Value("${ms-auth.login-rate-limit.per-email.refill-period:PT1M}") Duration emailRefillPeriod,
+                            @Value("${ms-auth.login-rate-limit.max-entries:100000}") long maxEntries) {
+        this(enabled, addressCapacity, addressRefillPeriod, emailCapacity, emailRefillPeriod, maxEntries,
+                Ticker.systemTicker());
+    }
+
+    LoginRateLimiter(boolean enabled, int addressCapacity, Duration addressRefillPeriod, int emailCapacity,
+                     Duration emailRefillPeriod, long maxEntries, Ticker ticker) {
+        this.enabled = enabled;
+        this.addressLimit = new Limit("address", addressCapacity, addressRefillPeriod, maxEntries, ticker);
+        this.emailLimit = new Limit("email", emailCapacity, emailRefillPeriod, maxEntries, ticker);
+    }
+
+    /**
+     * Takes one token from the client address bucket and then from the bucket of the email at that address.
+     *
+     * @throws TooManyLoginAttemptsException if either bucket is empty
+     */
+    public void acquire(String email, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        addressLimit.acquire(clientAddress);
+        // The address comes first and never contains the separator, so distinct pairs never share a key.
+        emailLimit.acquire(clientAddress + '|' + email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    long size() {
+        return addressLimit.buckets.estimatedSize() + emailLimit.buckets.estimatedSize();
+    }
+
+    void cleanUp() {
+        addressLimit.buckets.cleanUp();
+        emailLimit.buckets.cleanUp();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        addressLimit.bindTo(registry);
+        emailLimit.bindTo(registry);
+    }
+
+    private static final class Limit {
+
+        private final String name;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Ticker ticker;
+        private final Cache<String, AtomicLong> buckets;
+        private final LongAdder rejected = new LongAdder();
+
+        private Limit(String name, int capacity, Duration refillPeriod, long maxEntries, Ticker ticker) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Login rate limit capacity must be positive: " + name);
+            }
+            this.name = name;
+            this.intervalNanos = refillPeriod.toNanos() / capacity;
+            this.burstNanos = intervalNanos * capacity;
+            this.ticker = ticker;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .ticker(ticker)
+                    .build();
+        }
+
+        private void acquire(String key) {
+            AtomicLong bucket = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+            long now = ticker.read();
+            while (true) {
+                long arrival = bucket.get();
+                long next = (arrival == Long.MIN_VALUE ? now : Math.max(arrival, now)) + intervalNanos;
+                long excess = next - now - burstNanos;
+                if (excess > 0) {
+                    rejected.increment();
+                    throw new TooManyLoginAttemptsException("Too many login attempts, try again later",
+                            Duration.ofNanos(excess));
+                }
+                if (bucket.compareAndSet(arrival, next)) {
+                    return;
+                }
+            }
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            FunctionCounter.builder("login.rate_limit.rejected", rejected, LongAdder::sum)
+                    .description("Login attempts rejected by the rate limiter")
+                    .tag("limit", name)
+                    .register(registry);
+            Gauge.builder("login.rate_limit.buckets", buckets, Cache::estimatedSize)
+                    .description("Token buckets currently tracked")
+                    .tag("limit", name)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Factory for the password encoders the service can hash with.
+ * <p>
+ * Hashes are stored as {@code {id}hash}. Hashes without a prefix predate this format and are checked as BCrypt, and
+ * {@link PasswordEncoder#upgradeEncoding(String)} reports every hash whose algorithm or cost differs from the
+ * configured one, so it is re-hashed on the next successful login.
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    private PasswordEncoders() {
+    }
+
+    public static BCryptPasswordEncoder bcrypt(int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    public static Argon2PasswordEncoder argon2(int memoryKib, int iterations, int parallelism) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, parallelism, memoryKib, iterations);
+    }
+
+    public static DelegatingPasswordEncoder delegating(String algorithm, PasswordEncoder bcrypt, PasswordEncoder argon2) {
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm);
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, Map.of(BCRYPT, bcrypt, ARGON2, argon2));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
@@ -0,0 +1,128 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Measures password verification on this host and suggests the highest BCrypt strength and Argon2 iteration count
+ * whose verification stays within a target latency. Run it without starting the service:
+ * <pre>
+ * java -jar ms-auth.jar calibrate-password-hashing --target-ms=250 --argon2-memory=19456
+ * </pre>
+ * Each suggestion comes with the resulting login capacity of a node, one verification per CPU at a time.
+ */
+public class PasswordHashingCalibrator {
+
+    public static final String COMMAND = "calibrate-password-hashing";
+
+    private static final int MIN_BCRYPT_STRENGTH = 4;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MAX_ARGON2_ITERATIONS = 20;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-1";
+
+    public record Recommendation(String algorithm, String parameter, Duration latency, Map<String, String> properties) {
+    }
+
+    private final Duration target;
+    private final int samples;
+    private final int argon2Memory;
+    private final int argon2Parallelism;
+
+    public PasswordHashingCalibrator(Duration target, int samples, int argon2Memory, int argon2Parallelism) {
+        this.target = target;
+        this.samples = samples;
+        this.argon2Memory = argon2Memory;
+        this.argon2Parallelism = argon2Parallelism;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        PasswordHashingCalibrator calibrator = new PasswordHashingCalibrator(
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("target-ms", "250"))),
+                Integer.parseInt(options.getOrDefault("samples", "5")),
+                Integer.parseInt(options.getOrDefault("argon2-memory", "19456")),
+                Integer.parseInt(options.getOrDefault("argon2-parallelism", "1")));
+        calibrator.run(System.out);
+    }
+
+    public void run(PrintStream out) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        out.printf("Target verification latency: %d ms, %d CPUs%n", target.toMillis(), cpus);
+        for (Recommendation recommendation : new Recommendation[]{calibrateBcrypt(), calibrateArgon2()}) {
+            out.printf("%n%s %s verifies in %d ms, about %d logins/s per node%n",
+                    recommendation.algorithm(), recommendation.parameter(), recommendation.latency().toMillis(),
+                    loginsPerSecond(recommendation.latency(), cpus));
+            recommendation.properties().forEach((key, value) -> out.printf("%s=%s%n", key, value));
+        }
+    }
+
+    public Recommendation calibrateBcrypt() {
+        Step best = highestWithinTarget(MIN_BCRYPT_STRENGTH, MAX_BCRYPT_STRENGTH, PasswordEncoders::bcrypt);
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("ms-auth.password-hashing.algorithm", PasswordEncoders.BCRYPT);
+        properties.put("ms-auth.password-hashing.bcrypt.strength", String.valueOf(best.value()));
+        return new Recommendation(PasswordEncoders.BCRYPT, "strength " + best.value(), best.latency(), properties);
+    }
+
+    public Recommendation calibrateArgon2() {
+        Step best = highestWithinTarget(1, MAX_ARGON2_ITERATIONS,
+                iterations -> PasswordEncoders.argon2(argon2Memory, iterations, argon2Parallelism));
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("ms-auth.password-hashing.algorithm", PasswordEncoders.ARGON2);
+        properties.put("ms-auth.password-hashing.argon2.memory", String.valueOf(argon2Memory));
+        properties.put("ms-auth.password-hashing.argon2.iterations", String.valueOf(best.value()));
+        properties.put("ms-auth.password-hashing.argon2.parallelism", String.valueOf(argon2Parallelism));
+        return new Recommendation(PasswordEncoders.ARGON2,
+                "m=" + argon2Memory + ",t=" + best.value() + ",p=" + argon2Parallelism, best.latency(), properties);
+    }
+
+    // Cost grows monotonically with the parameter, so stop at the first value over the target.
+    private Step highestWithinTarget(int min, int max, IntFunction<PasswordEncoder> encoderFactory) {
+        Step best = new Step(min, measure(encoderFactory.apply(min)));
+        for (int value = min + 1; value <= max; value++) {
+            Duration latency = measure(encoderFactory.apply(value));
+            if (latency.compareTo(target) > 0) {
+                break;
+            }
+            best = new Step(value, latency);
+        }
+        return best;
+    }
+
+    private Duration measure(PasswordEncoder encoder) {
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        encoder.matches(SAMPLE_PASSWORD, hash);
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return Duration.ofNanos(nanos[samples / 2]);
+    }
+
+    private static long loginsPerSecond(Duration latency, int cpus) {
+        return Math.round(cpus * 1_000_000_000.0 / Math.max(1, latency.toNanos()));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private record Step(int value, Duration latency) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.jmarqb.ms.auth.app.security;
+
+/**
+ * A {@link BloomFilter} that is periodically rebuilt from its source of truth, so removed values stop occupying it.
+ * <p>
+ * While a rebuild scans the source, values added meanwhile go to both the active filter and the one being built; the
+ * new filter replaces the active one once the scan completes. {@link #isReady()} stays false until the first rebuild
+ * completes, and callers are expected to fall back to the source until then.
+ */
+public final class RebuildableBloomFilter {
+
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter active;
+    private volatile BloomFilter rebuilding;
+    private volatile boolean ready;
+
+    public RebuildableBloomFilter(long expectedEntries, double falsePositiveRate) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.active = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean mightContain(String value) {
+        return active.mightContain(value);
+    }
+
+    public void add(String value) {
+        active.add(value);
+        BloomFilter pending = rebuilding;
+        if (pending != null) {
+            pending.add(value);
+        }
+    }
+
+    /**
+     * Starts a rebuild; the caller fills the returned filter from the source and hands it to {@link #complete}.
+     * Rebuilds must not overlap.
+     */
+    public BloomFilter startRebuild() {
+        BloomFilter filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        rebuilding = filter;
+        return filter;
+    }
+
+    public void complete(BloomFilter filter) {
+        active = filter;
+        rebuilding = null;
+        ready = true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.jmarqb.ms.auth.app.security;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown for a validly signed, unexpired token that appears in the revocation denylist.
+ */
+public class RevokedTokenException extends JwtException {
+
+    public RevokedTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,111 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps role names to bits of a role-id bitmask: role {@code n} is bit {@code n - 1}, for ids 1 to 63.
+ * <p>
+ * The mapping is a snapshot of the active roles, reloaded when it is older than the configured TTL or after a local
+ * role change commits. Other replicas pick up role changes within the TTL.
+ */
+@Component
+public class RoleIdRegistry {
+
+    public static final long MAX_ROLE_ID = Long.SIZE - 1;
+
+    private final RoleRepository roleRepository;
+    private final long ttlMillis;
+    // A lock rather than a monitor, so a virtual thread waiting on the query does not pin its carrier.
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public RoleIdRegistry(RoleRepository roleRepository,
+                          @Value("${ms-auth.jwt.claims.role-ids-ttl:PT1M}") Duration ttl) {
+        this.roleRepository = roleRepository;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * Encodes the role names as a bitmask, or returns empty when one of them has no id that fits.
+     */
+    public OptionalLong mask(Collection<String> names) {
+        Map<String, Long> ids = snapshot().ids();
+        long mask = 0;
+        for (String name : names) {
+            Long id = ids.get(name);
+            if (id == null || id < 1 || id > MAX_ROLE_ID) {
+                return OptionalLong.empty();
+            }
+            mask |= 1L << (id - 1);
+        }
+        return OptionalLong.of(mask);
+    }
+
+    /**
+     * Decodes a bitmask into role names, skipping ids of roles that no longer exist.
+     */
+    public List<String> names(long mask) {
+        Map<Long, String> names = snapshot().names();
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            String name = names.get(Long.numberOfTrailingZeros(remaining) + 1L);
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    public void invalidateAfterCommit() {
+        AfterCommit.run(() -> snapshot = null);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isStale()) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = snapshot;
+            if (current == null || current.isStale()) {
+                current = load();
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private Snapshot load() {
+        Map<String, Long> ids = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (Role role : roleRepository.findAllByDeletedFalse()) {
+            ids.putIfAbsent(role.getName(), role.getId());
+            names.put(role.getId(), role.getName());
+        }
+        return new Snapshot(Map.copyOf(ids), Map.copyOf(names), System.currentTimeMillis() + ttlMillis);
+    }
+
+    private record Snapshot(Map<String, Long> ids, Map<Long, String> names, long expiresAt) {
+
+        boolean isStale() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
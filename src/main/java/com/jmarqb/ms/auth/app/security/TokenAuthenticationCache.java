@@ -0,0 +1,132 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Bounded W-TinyLFU cache of authentications built from already verified bearer tokens.
+ * <p>
+ * Entries are keyed by a 128-bit SHA-256 prefix of the token and never outlive the token's own
+ * {@code exp} nor the configured maximum TTL. Hit, miss and eviction counters are published as
+ * {@code cache.*} metrics with {@code cache=jwtAuthentication}.
+ */
+@Component
+public class TokenAuthenticationCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final long maxTtlNanos;
+    private final Cache<TokenDigest, CachedAuthentication> cache;
+
+    public TokenAuthenticationCache(@Value("${ms-auth.jwt.cache.enabled:true}") boolean enabled,
+                                    @Value("${ms-auth.jwt.cache.max-size:10000}") long maxSize,
+                                    @Value("${ms-auth.jwt.cache.max-ttl:PT5M}") Duration maxTtl) {
+        this.enabled = enabled;
+        this.maxTtlNanos = maxTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a fresh authentication for a cached token, or {@code null} on a miss or when disabled.
+     */
+    public UsernamePasswordAuthenticationToken get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        CachedAuthentication cached = cache.getIfPresent(digest(token));
+        if (cached == null) {
+            return null;
+        }
+        UsernamePasswordAuthenticationToken authentication = cached.authentication();
+        return new UsernamePasswordAuthenticationToken(
+                authentication.getPrincipal(), authentication.getCredentials(), authentication.getAuthorities());
+    }
+
+    public void put(String token, UsernamePasswordAuthenticationToken authentication, Date expiration) {
+        if (!enabled || expiration == null) {
+            return;
+        }
+        cache.put(digest(token), new CachedAuthentication(authentication, expiration.getTime()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void evictUsers(Collection<String> usernames) {
+        cache.asMap().values().removeIf(cached -> usernames.contains(cached.authentication().getName()));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwtAuthentication");
+    }
+
+    private static TokenDigest digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new TokenDigest(buffer.getLong(), buffer.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record TokenDigest(long high, long low) {
+    }
+
+    private record CachedAuthentication(UsernamePasswordAuthenticationToken authentication, long expiresAtMillis) {
+    }
+
+    private class TokenExpiry implements Expiry<TokenDigest, CachedAuthentication> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, CachedAuthentication value, long currentTime) {
+            long untilTokenExpiry = Duration.ofMillis(value.expiresAtMillis() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(untilTokenExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, CachedAuthentication value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, CachedAuthentication value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
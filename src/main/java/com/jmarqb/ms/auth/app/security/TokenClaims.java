@@ -0,0 +1,18 @@
+package com.jmarqb.ms.auth.app.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a JWT whose signature and expiry have already been verified.
+ */
+public record TokenClaims(String id, String subject, Long userId, List<String> authorities, Date issuedAt, Date expiration) {
+
+    public TokenClaims {
+        authorities = authorities == null ? List.of() : List.copyOf(authorities);
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
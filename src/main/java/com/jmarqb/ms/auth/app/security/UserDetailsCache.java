@@ -0,0 +1,224 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jmarqb.ms.auth.app.entities.UserInvalidation;
+import com.jmarqb.ms.auth.app.repositories.UserInvalidationRepository;
+import com.jmarqb.ms.auth.app.utils.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of {@link UserDetails} keyed by email, in front of {@code JpaUserDetailsService}.
+ * <p>
+ * Writers that change a user's credentials or authorities call {@link #evictAfterCommit(Collection)} or
+ * {@link #evictAllAfterCommit()}: the entries, together with any cached token authentications of the same
+ * users, are dropped once the surrounding transaction commits. The eviction is also written to
+ * {@code user_invalidations} in that transaction, and every instance applies the new rows every
+ * {@code sync-interval}, so other instances drop their copies within that interval.
+ * <p>
+ * A loader takes a {@link #stamp(String)} before reading the user and passes it to {@link #put(UserDetails, long)},
+ * which skips the entry if the email was evicted in between: the user was read before the change was committed.
+ */
+@Slf4j
+@Component
+public class UserDetailsCache implements MeterBinder {
+
+    // Each scan reaches back this far before the previous one started, for clock skew between instances and for
+    // invalidations whose transaction was still open when it ran.
+    static final long SCAN_OVERLAP_MILLIS = 60_000;
+
+    // Above this many users a single evict-all entry is published instead of one entry per user.
+    static final int MAX_PUBLISHED_EMAILS = 100;
+
+    // Eviction counters, one per stripe of emails, so a stamp costs no memory per email; an eviction of another email
+    // in the same stripe only skips a put.
+    private static final int STRIPES = 64;
+
+    private final UserInvalidationRepository userInvalidationRepository;
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Cache<String, UserDetails> cache;
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private final AtomicLongArray evictions = new AtomicLongArray(STRIPES);
+
+    private long lastScanStart = System.currentTimeMillis();
+    private Set<Long> applied = Set.of();
+
+    public UserDetailsCache(UserInvalidationRepository userInvalidationRepository,
+                            TokenAuthenticationCache tokenAuthenticationCache,
+                            @Value("${ms-auth.user-details.cache.enabled:true}") boolean enabled,
+                            @Value("${ms-auth.user-details.cache.max-size:10000}") long maxSize,
+                            @Value("${ms-auth.user-details.cache.ttl:PT10M}") Duration ttl) {
+        this.userInvalidationRepository = userInvalidationRepository;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached user, since authentication erases the password of the instance it is given.
+     */
+    public UserDetails get(String email) {
+        if (!enabled) {
+            return null;
+        }
+        UserDetails cached = cache.getIfPresent(email);
+        return cached == null ? null : copy(cached);
+    }
+
+    /**
+     * Returns the stamp to pass to {@link #put(UserDetails, long)}; take it before reading the user.
+     */
+    public long stamp(String email) {
+        return evictions.get(stripe(email));
+    }
+
+    /**
+     * Caches the user unless its email was evicted since {@code stamp} was taken. The check and the write are atomic
+     * with the eviction of the same email.
+     */
+    public void put(UserDetails userDetails, long stamp) {
+        if (enabled) {
+            String email = userDetails.getUsername();
+            UserDetails copy = copy(userDetails);
+            cache.asMap().compute(email, (key, cached) -> evictions.get(stripe(key)) == stamp ? copy : cached);
+        }
+    }
+
+    public void evictAfterCommit(Collection<String> emails) {
+        Set<String> snapshot = Set.copyOf(emails);
+        if (snapshot.size() > MAX_PUBLISHED_EMAILS) {
+            publish(List.of(invalidation(null)));
+        } else {
+            publish(snapshot.stream().map(UserDetailsCache::invalidation).toList());
+        }
+        AfterCommit.run(() -> evictLocally(snapshot));
+    }
+
+    public void evictAfterCommit(String email) {
+        evictAfterCommit(List.of(email));
+    }
+
+    public void evictAllAfterCommit() {
+        publish(List.of(invalidation(null)));
+        AfterCommit.run(this::evictAllLocally);
+    }
+
+    /**
+     * Applies the invalidations committed since the last scan, including those of other instances.
+     */
+    @Scheduled(initialDelayString = "${ms-auth.user-details.cache.sync-interval:PT5S}",
+            fixedDelayString = "${ms-auth.user-details.cache.sync-interval:PT5S}")
+    public void catchUp() {
+        scanLock.lock();
+        try {
+            long scanStart = System.currentTimeMillis();
+            List<UserInvalidation> invalidations = userInvalidationRepository.findByInvalidatedAtGreaterThanEqual(
+                    new Date(lastScanStart - SCAN_OVERLAP_MILLIS));
+            // Rows within the overlap were already applied by the previous scan.
+            Set<Long> seen = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            boolean all = false;
+            for (UserInvalidation invalidation : invalidations) {
+                seen.add(invalidation.getId());
+                if (applied.contains(invalidation.getId())) {
+                    continue;
+                }
+                if (invalidation.getEmail() == null) {
+                    all = true;
+                } else {
+                    emails.add(invalidation.getEmail());
+                }
+            }
+            if (all) {
+                evictAllLocally();
+            } else if (!emails.isEmpty()) {
+                evictLocally(emails);
+            }
+            applied = seen;
+            lastScanStart = scanStart;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ms-auth.user-details.cache.ttl:PT10M}",
+            fixedDelayString = "${ms-auth.user-details.cache.ttl:PT10M}")
+    public void pruneExpired() {
+        long retention = Math.max(ttl.toMillis(), 2 * SCAN_OVERLAP_MILLIS);
+        int pruned = userInvalidationRepository.deleteOlderThan(new Date(System.currentTimeMillis() - retention));
+        if (pruned > 0) {
+            log.debug("Pruned {} user cache invalidations", pruned);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+    }
+
+    private void publish(List<UserInvalidation> invalidations) {
+        if (!invalidations.isEmpty()) {
+            userInvalidationRepository.saveAll(invalidations);
+        }
+    }
+
+    private void evictLocally(Set<String> emails) {
+        for (String email : emails) {
+            cache.asMap().compute(email, (key, cached) -> {
+                evictions.incrementAndGet(stripe(key));
+                return null;
+            });
+        }
+        tokenAuthenticationCache.evictUsers(emails);
+    }
+
+    // Puts that read their stamp before the increments are skipped, and those already written are invalidated after.
+    private void evictAllLocally() {
+        for (int i = 0; i < STRIPES; i++) {
+            evictions.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+        tokenAuthenticationCache.invalidateAll();
+    }
+
+    private static int stripe(String email) {
+        return email.hashCode() & (STRIPES - 1);
+    }
+
+    private static UserInvalidation invalidation(String email) {
+        return UserInvalidation.builder()
+                .email(email)
+                .invalidatedAt(new Date())
+                .build();
+    }
+
+    private static UserDetails copy(UserDetails userDetails) {
+        return userDetails instanceof AuthenticatedUser authenticatedUser
+                ? authenticatedUser.copy()
+                : User.withUserDetails(userDetails).build();
+    }
+}
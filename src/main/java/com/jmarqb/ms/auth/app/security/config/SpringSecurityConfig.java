@@ -1,7 +1,14 @@
 package com.jmarqb.ms.auth.app.security.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.security.BoundedPasswordEncoder;
 import com.jmarqb.ms.auth.app.security.CustomAuthenticationEntryPoint;
+import com.jmarqb.ms.auth.app.security.ErrorResponses;
+import com.jmarqb.ms.auth.app.security.PasswordEncoders;
 import com.jmarqb.ms.auth.app.security.filters.JwtAuthenticationFilter;
+import com.jmarqb.ms.auth.app.security.filters.TokenVerificationFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,7 +18,6 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -20,6 +26,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
@@ -41,25 +48,53 @@ public class SpringSecurityConfig {
     }
 
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    BoundedPasswordEncoder passwordEncoder(
+            @Value("${ms-auth.password-hashing.algorithm:bcrypt}") String algorithm,
+            @Value("${ms-auth.password-hashing.bcrypt.strength:10}") int bcryptStrength,
+            @Value("${ms-auth.password-hashing.argon2.memory:19456}") int argon2Memory,
+            @Value("${ms-auth.password-hashing.argon2.iterations:2}") int argon2Iterations,
+            @Value("${ms-auth.password-hashing.argon2.parallelism:1}") int argon2Parallelism,
+            @Value("${ms-auth.password-hashing.threads:0}") int threads,
+            @Value("${ms-auth.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${ms-auth.password-hashing.max-queue-wait:PT0.1S}") Duration maxQueueWait) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        PasswordEncoder encoder = PasswordEncoders.delegating(algorithm,
+                PasswordEncoders.bcrypt(bcryptStrength),
+                PasswordEncoders.argon2(argon2Memory, argon2Iterations, argon2Parallelism));
+        return new BoundedPasswordEncoder(encoder, poolSize, queueCapacity, maxQueueWait);
     }
 
+    // Static so JwtAuthenticationFilter, which this configuration depends on, can use it.
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    static ErrorResponses errorResponses(ObjectMapper objectMapper) {
+        return new ErrorResponses(objectMapper);
+    }
+
+    @Bean
+    SecurityFilterChain filterChain(HttpSecurity http, ErrorResponses errorResponses) throws Exception {
         return http.authorizeHttpRequests((authz) -> authz
+                        // Completes streamed responses; the request itself was authorized on its first dispatch.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(HttpMethod.POST,"/api/users/export").hasAuthority("ADMIN")
+                        .requestMatchers(HttpMethod.POST,"/api/users/import").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.POST,"/api/users/search").hasAnyAuthority("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET,"/api/users/autocomplete").hasAnyAuthority("USER", "ADMIN")
                         .requestMatchers(HttpMethod.GET,"/api/users/{id}").hasAnyAuthority("USER", "ADMIN")
                         .requestMatchers(HttpMethod.PATCH,"/api/users/{id}").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.DELETE,"/api/users/{id}").hasAuthority("ADMIN")
                         .requestMatchers(HttpMethod.POST,"/api/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST,"/api/auth/signup").permitAll()
+                        .requestMatchers(HttpMethod.POST,"/api/auth/refresh").permitAll()
+                        .requestMatchers(HttpMethod.POST,"/api/auth/introspect").hasAnyAuthority("ADMIN", "INTROSPECTION")
+                        .requestMatchers(HttpMethod.GET,"/.well-known/jwks.json").permitAll()
                         .requestMatchers("/api/roles/**").hasAuthority("ADMIN")
                         .requestMatchers("/swagger-ui/**").permitAll()
                         .requestMatchers("/v3/api-docs/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                 .anyRequest().authenticated())
                 .exceptionHandling(exceptionHandling -> exceptionHandling
-                        .authenticationEntryPoint(new CustomAuthenticationEntryPoint()))
+                        .authenticationEntryPoint(new CustomAuthenticationEntryPoint(errorResponses)))
                 .csrf(config -> config.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session
@@ -89,4 +124,15 @@ public class SpringSecurityConfig {
         return corsBean;
     }
 
+    // Right after CORS and well before the security filter chain; it answers the request itself.
+    @Bean
+    FilterRegistrationBean<TokenVerificationFilter> tokenVerificationFilterRegistration(
+            TokenVerificationFilter tokenVerificationFilter) {
+        FilterRegistrationBean<TokenVerificationFilter> registration =
+                new FilterRegistrationBean<>(tokenVerificationFilter);
+        registration.addUrlPatterns(TokenVerificationFilter.PATH);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
 }
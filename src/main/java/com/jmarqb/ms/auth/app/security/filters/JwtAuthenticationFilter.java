@@ -1,36 +1,62 @@
 package com.jmarqb.ms.auth.app.security.filters;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.security.ErrorResponses;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
+import com.jmarqb.ms.auth.app.security.RevokedTokenException;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
 import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.TokenRevocationService;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 import static com.jmarqb.ms.auth.app.security.config.TokenJwtConfig.*;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    static final String INVALID_TOKEN = "Invalid token";
+    static final String EXPIRED_TOKEN = "Token expired";
+    static final String REVOKED_TOKEN = "Token has been revoked";
+
     private final JwtService jwtService;
     private final JpaUserDetailsService userDetailsService;
-
-    public JwtAuthenticationFilter(JwtService jwtService, JpaUserDetailsService userDetailsService) {
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final ErrorResponses errorResponses;
+
+    // When enabled the principal is built from the verified claims and the database is never queried.
+    private final boolean stateless;
+
+    public JwtAuthenticationFilter(JwtService jwtService, JpaUserDetailsService userDetailsService,
+                                   TokenAuthenticationCache tokenAuthenticationCache,
+                                   TokenRevocationService tokenRevocationService,
+                                   ErrorResponses errorResponses,
+                                   @Value("${ms-auth.jwt.stateless:false}") boolean stateless) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.errorResponses = errorResponses;
+        this.stateless = stateless;
     }
 
     @Override
@@ -43,16 +69,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = header.replace(PREFIX_TOKEN, "");
 
             try {
-                String username = jwtService.extractUsername(token);
-
-
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    if (jwtService.isTokenValid(token, userDetails)) {
-                        UsernamePasswordAuthenticationToken authenticationToken =
-                                new UsernamePasswordAuthenticationToken(
-                                        userDetails, null, userDetails.getAuthorities());
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    UsernamePasswordAuthenticationToken authenticationToken = tokenAuthenticationCache.get(token);
+                    if (authenticationToken == null) {
+                        authenticationToken = authenticate(token);
+                    } else if (authenticationToken.getCredentials() instanceof TokenClaims claims) {
+                        ensureNotRevoked(claims);
+                    }
 
+                    if (authenticationToken != null) {
                         authenticationToken.setDetails(
                                 new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -60,16 +85,54 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     }
                 }
             } catch (JwtException e) {
-                Map<String, String> body = new HashMap<>();
-                body.put("error", e.getMessage());
-                body.put("message", "Invalid token!");
-
-                response.getWriter().write(new ObjectMapper().writeValueAsString(body));
-                response.setStatus(HttpStatus.UNAUTHORIZED.value());
-                response.setContentType(CONTENT_TYPE);
+                errorResponses.write(response, HttpStatus.UNAUTHORIZED, ErrorResponses.UNAUTHORIZED, message(e));
+                return;
             }
 
         }
         filterChain.doFilter(request, response);
     }
+
+    private static String message(JwtException e) {
+        if (e instanceof ExpiredJwtException) {
+            return EXPIRED_TOKEN;
+        }
+        return e instanceof RevokedTokenException ? REVOKED_TOKEN : INVALID_TOKEN;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String token) {
+        TokenClaims claims = jwtService.verify(token);
+        String username = claims.subject();
+        if (username == null) {
+            return null;
+        }
+        ensureNotRevoked(claims);
+
+        UserDetails userDetails = stateless
+                ? toUserDetails(claims)
+                : userDetailsService.loadUserByUsername(username);
+        if (!username.equals(userDetails.getUsername())) {
+            return null;
+        }
+
+        // The verified claims travel as credentials so endpoints such as /api/auth/me
+        // can answer from the token alone.
+        UsernamePasswordAuthenticationToken authenticationToken =
+                new UsernamePasswordAuthenticationToken(userDetails, claims, userDetails.getAuthorities());
+        tokenAuthenticationCache.put(token, authenticationToken, claims.expiration());
+        return authenticationToken;
+    }
+
+    private void ensureNotRevoked(TokenClaims claims) {
+        if (tokenRevocationService.isRevoked(claims)) {
+            throw new RevokedTokenException("Token has been revoked");
+        }
+    }
+
+    private UserDetails toUserDetails(TokenClaims claims) {
+        List<GrantedAuthority> authorities = claims.authorities().stream()
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(authority))
+                .toList();
+        return new User(claims.subject(), "", authorities);
+    }
 }
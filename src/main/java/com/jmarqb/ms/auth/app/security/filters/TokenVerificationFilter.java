@@ -0,0 +1,83 @@
+package com.jmarqb.ms.auth.app.security.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jmarqb.ms.auth.app.dtos.response.TokenIntrospectionDto;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static com.jmarqb.ms.auth.app.security.config.TokenJwtConfig.*;
+
+/**
+ * Answers {@code GET|POST /api/auth/verify} for other services: verifies the bearer token's signature, expiry and
+ * revocation and returns its claims in the introspection format, or {@code 401} with {@code {"active":false}}.
+ * <p>
+ * Registered in {@code SpringSecurityConfig} ahead of the security filter chain, so the request never reaches the
+ * user lookup, the authorization rules or the dispatcher servlet.
+ */
+@Component
+public class TokenVerificationFilter extends OncePerRequestFilter {
+
+    public static final String PATH = "/api/auth/verify";
+
+    private static final String CACHE_CONTROL = "no-store";
+    private static final String ALLOWED_METHODS = "GET, POST";
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+    private final ObjectWriter writer;
+    private final byte[] inactiveBody;
+
+    public TokenVerificationFilter(TokenIntrospectionService tokenIntrospectionService, ObjectMapper objectMapper) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+        this.writer = objectMapper.writerFor(TokenIntrospectionDto.class);
+        this.inactiveBody = serialize(TokenIntrospectionDto.inactive());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"POST".equals(method)) {
+            response.setStatus(HttpStatus.METHOD_NOT_ALLOWED.value());
+            response.setHeader(HttpHeaders.ALLOW, ALLOWED_METHODS);
+            return;
+        }
+
+        String header = request.getHeader(HEADER_AUTHORIZATION);
+        TokenIntrospectionDto result = header != null && header.startsWith(PREFIX_TOKEN)
+                ? tokenIntrospectionService.introspect(header.substring(PREFIX_TOKEN.length()))
+                : null;
+
+        if (result != null && result.isActive()) {
+            write(response, HttpStatus.OK, serialize(result));
+        } else {
+            write(response, HttpStatus.UNAUTHORIZED, inactiveBody);
+        }
+    }
+
+    private void write(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] serialize(TokenIntrospectionDto result) {
+        try {
+            return writer.writeValueAsBytes(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -4,6 +4,10 @@ import com.jmarqb.ms.auth.app.dtos.request.*;
 import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.RoleAssignmentResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserSuggestionDto;
+
+import java.util.List;
 
 public interface UserService {
 
@@ -11,6 +15,8 @@ public interface UserService {
 
     PaginatedResponseDto search(SearchBodyDto searchBodyDto);
 
+    List<UserSuggestionDto> autocomplete(String query, int limit);
+
     CreateUserResponseDto findUser(Long id);
 
 
@@ -18,7 +24,7 @@ public interface UserService {
 
     DeleteResponseDto deleteUser(Long id);
 
-    PaginatedResponseDto addRoleToManyUsers(RoleToUsersDto roleToUsersDto);
+    RoleAssignmentResponseDto addRoleToManyUsers(RoleToUsersDto roleToUsersDto);
 
     PaginatedResponseDto removeRoleToManyUsers(RoleToUsersDto roleToUsersDto);
 
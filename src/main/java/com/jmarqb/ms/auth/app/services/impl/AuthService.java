@@ -1,13 +1,18 @@
 package com.jmarqb.ms.auth.app.services.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RefreshTokenDto;
 import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CurrentUserResponseDto;
+import com.jmarqb.ms.auth.app.security.LoginRateLimiter;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 
@@ -16,15 +21,30 @@ public class AuthService {
 
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final JpaUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginRateLimiter loginRateLimiter;
 
-    public AuthService(JwtService jwtService, AuthenticationManager authenticationManager) {
+    public AuthService(JwtService jwtService, AuthenticationManager authenticationManager,
+                       RefreshTokenService refreshTokenService, JpaUserDetailsService userDetailsService,
+                       TokenRevocationService tokenRevocationService, LoginRateLimiter loginRateLimiter) {
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
+        this.refreshTokenService = refreshTokenService;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
 
-    public AuthResponseDto login(LoginDto loginRequest){
+    /**
+     * Authenticates the user once both the client address and the email are within their login rate limits, so
+     * throttled attempts never reach the database or the password encoder.
+     */
+    public AuthResponseDto login(LoginDto loginRequest, String clientAddress){
         {
+            loginRateLimiter.acquire(loginRequest.getEmail(), clientAddress);
             try {
                 Authentication authentication = authenticationManager.authenticate(
                         new UsernamePasswordAuthenticationToken(
@@ -33,14 +53,53 @@ public class AuthService {
                         )
                 );
                 User user = (User) authentication.getPrincipal();
-                return new AuthResponseDto(jwtService.generateToken(user));
+                return new AuthResponseDto(jwtService.generateToken(user), refreshTokenService.issue(user.getUsername()));
 
             } catch (BadCredentialsException e) {
                 throw new BadCredentialsException("Invalid email or password", e);
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Error generating token", e);
             }
         }
     }
+
+    /**
+     * Exchanges a refresh token for a new access token and its successor refresh token, without a password check.
+     */
+    public AuthResponseDto refresh(RefreshTokenDto refreshRequest) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+        try {
+            User user = (User) userDetailsService.loadUserByUsername(rotation.email());
+            return new AuthResponseDto(jwtService.generateToken(user), rotation.refreshToken());
+        } catch (UsernameNotFoundException e) {
+            throw new BadCredentialsException("Invalid refresh token", e);
+        }
+    }
+
+    /**
+     * Revokes the access token of the current request and, when given, the family of the refresh token.
+     */
+    public void logout(Authentication authentication, RefreshTokenDto refreshRequest) {
+        tokenRevocationService.revokeToken(tokenClaims(authentication));
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        }
+    }
+
+    public CurrentUserResponseDto currentUser(Authentication authentication) {
+        TokenClaims claims = tokenClaims(authentication);
+        return CurrentUserResponseDto.builder()
+                .id(claims.userId())
+                .email(claims.subject())
+                .authorities(claims.authorities())
+                .issuedAt(claims.issuedAt())
+                .expiresAt(claims.expiration())
+                .build();
+    }
+
+    private TokenClaims tokenClaims(Authentication authentication) {
+        if (authentication.getCredentials() instanceof TokenClaims claims) {
+            return claims;
+        }
+        throw new InsufficientAuthenticationException("A bearer token is required");
+    }
 }
 
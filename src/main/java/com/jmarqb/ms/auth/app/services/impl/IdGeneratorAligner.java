@@ -0,0 +1,90 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.IdGenerators;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Moves the id allocators past the ids already in use, for databases whose users and roles were created with
+ * auto-increment ids. Runs once the schema is up to date and before the first request or seed insert; on an empty
+ * table, or once the allocator is ahead, it changes nothing.
+ * <p>
+ * A users allocator that is behind restarts {@link #GAP} ids past the highest id, so rows a still-running
+ * auto-increment instance inserts meanwhile do not collide with the first blocks handed out. That only lasts until
+ * this version writes: MySQL moves the auto-increment counter past every explicit id, so upgrades still need every
+ * instance of the previous version stopped before the first new one starts.
+ * <p>
+ * Role ids stay compact, since the bitmask authorities claim only encodes ids up to
+ * {@link RoleIdRegistry#MAX_ROLE_ID}: the roles allocator continues right after the highest id, and is also pulled
+ * back there when an earlier block allocation left it past the encodable range.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class IdGeneratorAligner implements InitializingBean {
+
+    static final long GAP = 1_000_000;
+
+    private static final String UPDATE = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN
+            + " = ? WHERE " + IdGenerators.NAME_COLUMN + " = ? AND (" + IdGenerators.VALUE_COLUMN + " < ? OR "
+            + IdGenerators.VALUE_COLUMN + " > ?)";
+    private static final String INSERT = "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", "
+            + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)";
+    private static final String EXISTS = "SELECT count(*) FROM " + IdGenerators.TABLE + " WHERE "
+            + IdGenerators.NAME_COLUMN + " = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        align("users");
+        align("roles");
+    }
+
+    void align(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // Stored values below floor are behind the ids in use, and those above ceiling are moved back.
+        long next;
+        long floor;
+        long ceiling;
+        if ("roles".equals(table)) {
+            // Allocated one at a time: the stored value is the last id handed out.
+            next = maxId;
+            floor = maxId;
+            ceiling = Math.max(maxId, RoleIdRegistry.MAX_ROLE_ID);
+        } else {
+            // The pooled optimizer reads the stored value as the highest id of the next block.
+            next = maxId + GAP;
+            floor = maxId + 1;
+            ceiling = Long.MAX_VALUE;
+        }
+        if (jdbcTemplate.update(UPDATE, next, table, floor, ceiling) > 0) {
+            log.info("Moved the {} id allocator to {}", table, next);
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject(EXISTS, Integer.class, table);
+        if (rows != null && rows > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT, table, next);
+            log.info("Started the {} id allocator after id {}", table, maxId);
+        } catch (DuplicateKeyException e) {
+            // Another instance created the row meanwhile.
+            jdbcTemplate.update(UPDATE, next, table, floor, ceiling);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.jmarqb.ms.auth.app.services.impl;
 
 import com.jmarqb.ms.auth.app.entities.User;
 import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.security.AuthenticatedUser;
+import com.jmarqb.ms.auth.app.security.UserDetailsCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -15,18 +18,45 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
-public class JpaUserDetailsService implements UserDetailsService {
+public class JpaUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
-    public JpaUserDetailsService(UserRepository userRepository) {
+    private final UserDetailsCache userDetailsCache;
+
+    private final RegisteredEmailFilter registeredEmailFilter;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    public JpaUserDetailsService(UserRepository userRepository, UserDetailsCache userDetailsCache,
+                                 RegisteredEmailFilter registeredEmailFilter,
+                                 TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
+    /**
+     * Emails rejected by the {@link RegisteredEmailFilter} fail without a query. The authentication provider still
+     * checks the password against a dummy hash on {@link UsernameNotFoundException}, so the response takes as long as
+     * for a wrong password. A cached user whose tokens were revoked, e.g. because it was deleted on another instance
+     * that has not yet reached this one's cache, is read again from the database.
+     */
     @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        UserDetails cached = userDetailsCache.get(email);
+        if (cached != null && !tokenRevocationService.isSubjectRevoked(email)) {
+            return cached;
+        }
+
+        if (!registeredEmailFilter.mightBeRegistered(email)) {
+            throw new UsernameNotFoundException(String.format("Username %s not exists!", email));
+        }
 
+        // Taken before the read, so a user changed and evicted meanwhile is returned but not cached.
+        long stamp = userDetailsCache.stamp(email);
         Optional<User> userOptional = userRepository.findByUsername(email);
 
         if (userOptional.isEmpty()) {
@@ -39,14 +69,26 @@ public class JpaUserDetailsService implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority(role.getName()))
                 .collect(Collectors.toList());
 
-        return new org.springframework.security.core.userdetails.User(
+        UserDetails userDetails = new AuthenticatedUser(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
-                true,
-                true,
-                true,
-                true,
                 authorities);
+        userDetailsCache.put(userDetails, stamp);
+        return userDetails;
+    }
+
+    /**
+     * Stores a hash produced with the current algorithm and cost; called by the authentication provider after a
+     * successful login with an outdated hash.
+     */
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        userDetailsCache.evictAfterCommit(user.getUsername());
+        Long id = user instanceof AuthenticatedUser authenticatedUser ? authenticatedUser.getId() : null;
+        return new AuthenticatedUser(id, user.getUsername(), newPassword, user.getAuthorities());
     }
 
 }
@@ -1,64 +1,166 @@
 package com.jmarqb.ms.auth.app.services.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.security.AuthenticatedUser;
+import com.jmarqb.ms.auth.app.security.JwtKeyRing;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import static com.jmarqb.ms.auth.app.security.config.TokenJwtConfig.SECRET_KEY;
+import java.util.OptionalLong;
+import java.util.UUID;
 
+/**
+ * Issues and verifies access tokens.
+ * <p>
+ * Tokens are issued in format version 2 ({@code ver=2}): the authorities are a native array claim, or a role-id
+ * bitmask ({@code rmask}) when {@code ms-auth.jwt.claims.authorities-format=bitmask}, and {@code uid} holds the user
+ * id. Tokens without {@code ver} use the original format, where {@code authorities} is a JSON string, and still
+ * verify until they expire.
+ */
 @Service
 public class JwtService {
 
-    public String generateToken(User user) throws JsonProcessingException {
-        String username = user.getUsername();
-        Collection<GrantedAuthority> roles = user.getAuthorities();
+    public enum AuthoritiesFormat {
+        NAMES,
+        BITMASK
+    }
+
+    static final String VERSION_CLAIM = "ver";
+    static final String USER_ID_CLAIM = "uid";
+    static final String AUTHORITIES_CLAIM = "authorities";
+    static final String ROLE_MASK_CLAIM = "rmask";
+
+    private static final int CURRENT_VERSION = 2;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JwtKeyRing keyRing;
+
+    private final Duration accessTokenTtl;
+
+    private final RoleIdRegistry roleIdRegistry;
+
+    private final AuthoritiesFormat authoritiesFormat;
 
-        Claims claims = Jwts.claims()
-                .add("authorities", new ObjectMapper().writeValueAsString(roles))
-                .add("username", username)
+    // JwtParser is immutable and thread-safe, so one instance serves every request.
+    private final JwtParser jwtParser;
+
+    public JwtService(JwtKeyRing keyRing, @Value("${ms-auth.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl,
+                      RoleIdRegistry roleIdRegistry,
+                      @Value("${ms-auth.jwt.claims.authorities-format:names}") AuthoritiesFormat authoritiesFormat) {
+        this.keyRing = keyRing;
+        this.accessTokenTtl = accessTokenTtl;
+        this.roleIdRegistry = roleIdRegistry;
+        this.authoritiesFormat = authoritiesFormat;
+        this.jwtParser = Jwts.parser()
+                .keyLocator(keyRing)
                 .build();
+    }
+
+    public String generateToken(User user) {
+        List<String> authorities = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
+        JwtBuilder builder = Jwts.builder()
+                .header().keyId(keyRing.activeKeyId()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(VERSION_CLAIM, CURRENT_VERSION);
+
+        if (user instanceof AuthenticatedUser authenticatedUser && authenticatedUser.getId() != null) {
+            builder.claim(USER_ID_CLAIM, authenticatedUser.getId());
+        }
 
+        OptionalLong roleMask = authoritiesFormat == AuthoritiesFormat.BITMASK
+                ? roleIdRegistry.mask(authorities)
+                : OptionalLong.empty();
+        if (roleMask.isPresent()) {
+            builder.claim(ROLE_MASK_CLAIM, roleMask.getAsLong());
+        } else {
+            builder.claim(AUTHORITIES_CLAIM, authorities);
+        }
 
-        return Jwts.builder()
-                .subject(username)
-                .claims(claims)
-                .expiration(new Date(System.currentTimeMillis() + 3600000))
+        return builder
+                .expiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
                 .issuedAt(new Date())
-                .signWith(SECRET_KEY)
+                .signWith(keyRing.signingKey())
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry of the token exactly once and returns its claims.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public TokenClaims verify(String token) {
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        return new TokenClaims(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.containsKey(VERSION_CLAIM) ? readAuthorities(claims) : readLegacyAuthorities(claims),
+                claims.getIssuedAt(),
+                claims.getExpiration());
+    }
+
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verify(token).subject();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        TokenClaims claims = verify(token);
+        return claims.subject().equals(userDetails.getUsername()) && !claims.isExpired();
+    }
+
+    private List<String> readAuthorities(Claims claims) {
+        Long roleMask = claims.get(ROLE_MASK_CLAIM, Long.class);
+        if (roleMask != null) {
+            return roleIdRegistry.names(roleMask);
+        }
+        if (!(claims.get(AUTHORITIES_CLAIM) instanceof List<?> authorities)) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(authorities.size());
+        for (Object authority : authorities) {
+            if (!(authority instanceof String name)) {
+                throw new MalformedJwtException("Invalid authorities claim");
+            }
+            names.add(name);
+        }
+        return names;
     }
 
-    private boolean isTokenExpired(String token) {
-        Date expiration = Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getExpiration();
-        return expiration.before(new Date());
+    // Version 1 tokens carry the serialized GrantedAuthority collection: "[{\"authority\":\"ADMIN\"}]".
+    private List<String> readLegacyAuthorities(Claims claims) {
+        String authorities = claims.get(AUTHORITIES_CLAIM, String.class);
+        if (authorities == null) {
+            return List.of();
+        }
+        try {
+            List<String> names = new ArrayList<>();
+            for (JsonNode node : OBJECT_MAPPER.readTree(authorities)) {
+                names.add(node.path("authority").asText());
+            }
+            return names;
+        } catch (JsonProcessingException e) {
+            throw new MalformedJwtException("Invalid authorities claim", e);
+        }
     }
 }
@@ -0,0 +1,113 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.RefreshToken;
+import com.jmarqb.ms.auth.app.repositories.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Opaque, single-use refresh tokens stored as SHA-256 hashes.
+ * <p>
+ * Every login starts a new family. Each refresh consumes the presented token and issues its successor in the same
+ * family, keeping the family's original expiry. Presenting a token that was already consumed means it leaked, so the
+ * whole family is revoked and its holder has to log in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final Duration refreshTokenTtl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${ms-auth.jwt.refresh-token-ttl:P14D}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    @Transactional
+    public String issue(String email) {
+        Date expiresAt = new Date(System.currentTimeMillis() + refreshTokenTtl.toMillis());
+        return save(email, UUID.randomUUID().toString(), expiresAt);
+    }
+
+    // The family revocation must survive the exception that reports the reuse.
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        if (current.isRevoked() || current.getExpiresAt().before(new Date())) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (refreshTokenRepository.markUsed(current.getId()) == 0) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            throw new BadCredentialsException("Refresh token reuse detected");
+        }
+
+        String next = save(current.getEmail(), current.getFamilyId(), current.getExpiresAt());
+        return new Rotation(current.getEmail(), next);
+    }
+
+    /**
+     * Revokes the family of the given refresh token, ignoring tokens that are unknown.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeAll(String email) {
+        refreshTokenRepository.revokeByEmail(email);
+    }
+
+    @Scheduled(fixedDelayString = "${ms-auth.jwt.refresh-token-purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(new Date());
+    }
+
+    private String save(String email, String familyId, Date expiresAt) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .familyId(familyId)
+                .email(email)
+                .createdAt(new Date())
+                .expiresAt(expiresAt)
+                .build());
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record Rotation(String email, String refreshToken) {
+    }
+}
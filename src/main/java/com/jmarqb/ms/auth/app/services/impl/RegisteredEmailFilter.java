@@ -0,0 +1,136 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.repositories.RegisteredEmail;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.security.BloomFilter;
+import com.jmarqb.ms.auth.app.security.RebuildableBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filter of registered emails, so logins for accounts that do not exist are rejected without a query.
+ * <p>
+ * A miss means the email is definitely not registered; a hit still goes to the database. Emails are added as soon
+ * as this instance creates or renames a user. Accounts created or renamed elsewhere are picked up every
+ * {@code sync-interval} by a scan of recently updated users, and the filter is rebuilt every {@code rebuild-interval}
+ * to drop deleted accounts and old emails. Until the first build completes every email is treated as possibly
+ * registered.
+ */
+@Slf4j
+@Service
+public class RegisteredEmailFilter {
+
+    private static final int PAGE_SIZE = 1000;
+    // Each scan reaches back this far before the previous one started, for clock skew between instances and for
+    // users whose transaction was still open when it ran.
+    static final long SCAN_OVERLAP_MILLIS = 60_000;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final RebuildableBloomFilter filter;
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    private long lastScanStart;
+
+    public RegisteredEmailFilter(UserRepository userRepository,
+                                 @Value("${ms-auth.login.email-filter.enabled:true}") boolean enabled,
+                                 @Value("${ms-auth.login.email-filter.expected-entries:1000000}") long expectedEntries,
+                                 @Value("${ms-auth.login.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.filter = new RebuildableBloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    public boolean mightBeRegistered(String email) {
+        return !enabled || !filter.isReady() || filter.mightContain(key(email));
+    }
+
+    /**
+     * Adds an email before its transaction commits; if it rolls back the entry is only a false positive.
+     */
+    public void register(String email) {
+        filter.add(key(email));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ms-auth.login.email-filter.rebuild-interval:PT1H}",
+            fixedDelayString = "${ms-auth.login.email-filter.rebuild-interval:PT1H}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds the emails of accounts created or changed since the last scan, including by other instances.
+     */
+    @Scheduled(initialDelayString = "${ms-auth.login.email-filter.sync-interval:PT5S}",
+            fixedDelayString = "${ms-auth.login.email-filter.sync-interval:PT5S}")
+    public void catchUp() {
+        scanLock.lock();
+        try {
+            if (filter.isReady()) {
+                long scanStart = System.currentTimeMillis();
+                Date since = new Date(lastScanStart - SCAN_OVERLAP_MILLIS);
+                load(filter::add,
+                        (lastId, page) -> userRepository.findRegisteredEmailsUpdatedSince(since, lastId, page));
+                lastScanStart = scanStart;
+            }
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    void rebuild() {
+        scanLock.lock();
+        try {
+            long scanStart = System.currentTimeMillis();
+            BloomFilter rebuilt = filter.startRebuild();
+            int loaded = load(rebuilt::add, userRepository::findRegisteredEmailsAfter);
+            filter.complete(rebuilt);
+            lastScanStart = scanStart;
+            log.debug("Registered email filter rebuilt with {} emails", loaded);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    private int load(Consumer<String> filter, BiFunction<Long, Pageable, List<RegisteredEmail>> pageAfter) {
+        long lastId = 0L;
+        int loaded = 0;
+        List<RegisteredEmail> page;
+        do {
+            page = pageAfter.apply(lastId, PageRequest.ofSize(PAGE_SIZE));
+            for (RegisteredEmail registered : page) {
+                filter.accept(key(registered.email()));
+                lastId = registered.id();
+            }
+            loaded += page.size();
+        } while (page.size() == PAGE_SIZE);
+        return loaded;
+    }
+
+    // MySQL compares emails case-insensitively, so the filter must not tell two spellings apart.
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -10,6 +10,8 @@ import com.jmarqb.ms.auth.app.entities.Role;
 import com.jmarqb.ms.auth.app.entities.RoleMapper;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
 import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import com.jmarqb.ms.auth.app.security.UserDetailsCache;
 import com.jmarqb.ms.auth.app.services.RoleService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -20,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class RoleServiceImpl implements RoleService {
@@ -27,9 +30,19 @@ public class RoleServiceImpl implements RoleService {
     private final RoleRepository roleRepository;
     private final RoleMapper roleMapper;
 
-    public RoleServiceImpl(RoleRepository roleRepository, RoleMapper roleMapper) {
+    private final UserDetailsCache userDetailsCache;
+
+    private final RoleIdRegistry roleIdRegistry;
+
+    private final SearchTotals searchTotals;
+
+    public RoleServiceImpl(RoleRepository roleRepository, RoleMapper roleMapper, UserDetailsCache userDetailsCache,
+                           RoleIdRegistry roleIdRegistry, SearchTotals searchTotals) {
         this.roleRepository = roleRepository;
         this.roleMapper = roleMapper;
+        this.userDetailsCache = userDetailsCache;
+        this.roleIdRegistry = roleIdRegistry;
+        this.searchTotals = searchTotals;
     }
 
 
@@ -38,6 +51,7 @@ public class RoleServiceImpl implements RoleService {
     public CreateRoleResponseDto save(CreateRoleDto role) {
         Role newRole = roleMapper.toEntity(role);
         Role savedRole = roleRepository.save(newRole);
+        roleIdRegistry.invalidateAfterCommit();
         return roleMapper.toResponse(savedRole);
     }
 
@@ -46,20 +60,43 @@ public class RoleServiceImpl implements RoleService {
     public PaginatedResponseDto search(SearchBodyDto searchBodyDto) {
         List<Role> roles;
         String search = searchBodyDto.getSearch();
-
-        Pageable pageable = PageRequest.of(searchBodyDto.getPage(),
-                searchBodyDto.getSize(),
-                searchBodyDto.getSort().equalsIgnoreCase("asc") ?
-                        Sort.Direction.ASC : Sort.Direction.DESC, "id");
-
-        roles = (search != null)
-                ? roleRepository.searchAllByRegex(search, pageable)
-                : roleRepository.searchAll(pageable);
+        Sort.Direction direction = searchBodyDto.getSort().equalsIgnoreCase("asc") ?
+                Sort.Direction.ASC : Sort.Direction.DESC;
+        Long after = SearchCursor.decode(searchBodyDto.getCursor(), direction);
+        CompletableFuture<SearchTotals.Total> total = searchTotals.count("roles", search, null,
+                searchBodyDto.getTotalStrategy(),
+                () -> search != null ? roleRepository.countAllByRegex(search) : roleRepository.countAll());
+
+        if (after == null) {
+            Pageable pageable = PageRequest.of(searchBodyDto.getPage(), searchBodyDto.getSize(), direction, "id");
+
+            roles = (search != null)
+                    ? roleRepository.searchAllByRegex(search, pageable)
+                    : roleRepository.searchAll(pageable);
+        } else {
+            roles = searchAfter(search, after, direction, searchBodyDto.getSize());
+        }
 
         List<CreateRoleResponseDto> response = new ArrayList<>();
         roles.forEach(role -> response.add(roleMapper.toResponse(role)));
 
-        return roleMapper.toPaginatedResponse(response, roles.size(), searchBodyDto.getPage(), searchBodyDto.getSize(), new Date());
+        SearchTotals.Total matches = total.join();
+        PaginatedResponseDto paginatedResponse = roleMapper.toPaginatedResponse(response,
+                (int) Math.min(matches.count(), Integer.MAX_VALUE), searchBodyDto.getPage(),
+                searchBodyDto.getSize(), new Date());
+        paginatedResponse.setTotalStrategy(matches.strategy().name());
+        paginatedResponse.setNextCursor(SearchCursor.next(roles, searchBodyDto.getSize(), direction, Role::getId));
+        return paginatedResponse;
+    }
+
+    private List<Role> searchAfter(String search, Long after, Sort.Direction direction, int size) {
+        Pageable limit = PageRequest.of(0, size, direction, "id");
+        if (direction.isAscending()) {
+            return (search != null) ? roleRepository.searchAllByRegexAfter(search, after, limit)
+                    : roleRepository.searchAllAfter(after, limit);
+        }
+        return (search != null) ? roleRepository.searchAllByRegexBefore(search, after, limit)
+                : roleRepository.searchAllBefore(after, limit);
     }
 
 
@@ -76,6 +113,9 @@ public class RoleServiceImpl implements RoleService {
         Role role = existsRole(id);
         updateRoleFields(role, updateRoleDto);
         Role savedRole = roleRepository.save(role);
+        // Any user may hold the role, so every cached authority set is dropped.
+        userDetailsCache.evictAllAfterCommit();
+        roleIdRegistry.invalidateAfterCommit();
 
         return roleMapper.toResponse(savedRole);
     }
@@ -87,6 +127,8 @@ public class RoleServiceImpl implements RoleService {
         role.setDeleted(true);
         role.setDeletedAt(new Date());
         roleRepository.save(role);
+        userDetailsCache.evictAllAfterCommit();
+        roleIdRegistry.invalidateAfterCommit();
 
         return DeleteResponseDto.builder().deletedCount(1).acknowledged(true).build();
     }
@@ -0,0 +1,142 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.JobLock;
+import com.jmarqb.ms.auth.app.repositories.JobLockRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fills the lower-cased email and last name columns used by prefix searches for users stored before those columns
+ * existed. New and updated users get them from the entity callbacks.
+ * <p>
+ * The backfill runs on its own thread once the application is ready, so startup neither waits for it nor fails with
+ * it. It updates {@code batch-size} ids per transaction, and only the instance holding the {@value #JOB} lease runs
+ * it. An instance that finds the lease taken, or whose run fails, tries again every {@code retry-interval} until no
+ * row is left to fill.
+ */
+@Slf4j
+@Component
+public class SearchColumnsNormalizer implements DisposableBean {
+
+    static final String JOB = "normalize-search-columns";
+
+    private final UserRepository userRepository;
+    private final JobLockRepository jobLockRepository;
+    private final int batchSize;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("search-columns-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean done;
+
+    public SearchColumnsNormalizer(UserRepository userRepository, JobLockRepository jobLockRepository,
+                                   @Value("${ms-auth.user-search.normalize.batch-size:1000}") int batchSize,
+                                   @Value("${ms-auth.user-search.normalize.lease:PT5M}") Duration lease) {
+        this.userRepository = userRepository;
+        this.jobLockRepository = jobLockRepository;
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void normalizeOnStartup() {
+        start();
+    }
+
+    @Scheduled(initialDelayString = "${ms-auth.user-search.normalize.retry-interval:PT10M}",
+            fixedDelayString = "${ms-auth.user-search.normalize.retry-interval:PT10M}")
+    public void retry() {
+        start();
+    }
+
+    private void start() {
+        if (done || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                normalize();
+            } catch (RuntimeException e) {
+                log.warn("Normalizing search columns failed; retrying later", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Fills the rows between the lowest and highest ids still missing their normalized columns, one id range per
+     * transaction, so a restart after a partial run does not walk the ranges already filled.
+     *
+     * @return whether no row is left to fill
+     */
+    boolean normalize() {
+        Long minId = userRepository.findMinIdWithoutSearchColumns();
+        Long maxId = minId == null ? null : userRepository.findMaxIdWithoutSearchColumns();
+        if (maxId == null) {
+            done = true;
+            return true;
+        }
+        if (!claim()) {
+            log.debug("Another instance is normalizing search columns");
+            return false;
+        }
+        try {
+            int normalized = 0;
+            for (long from = minId - 1; from < maxId; from += batchSize) {
+                // Renewing the lease per batch stops this run as soon as another instance has taken over.
+                if (!claim()) {
+                    return false;
+                }
+                normalized += userRepository.normalizeSearchColumns(from, Math.min(from + batchSize, maxId));
+            }
+            if (normalized > 0) {
+                log.info("Normalized search columns of {} users", normalized);
+            }
+            done = true;
+            return true;
+        } finally {
+            jobLockRepository.release(JOB, owner, new Date());
+        }
+    }
+
+    private boolean claim() {
+        Date now = new Date();
+        Date until = new Date(now.getTime() + lease.toMillis());
+        if (jobLockRepository.claim(JOB, owner, until, now) > 0) {
+            return true;
+        }
+        if (jobLockRepository.existsById(JOB)) {
+            return false;
+        }
+        try {
+            jobLockRepository.saveAndFlush(new JobLock(JOB, owner, until));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the lease meanwhile.
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
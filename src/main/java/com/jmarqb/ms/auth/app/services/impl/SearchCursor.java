@@ -0,0 +1,103 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset cursor for the search endpoints: the sort direction and the id of the last row returned, so the next
+ * page is read with {@code id > ?} (or {@code id < ?}) through the primary key instead of an {@code OFFSET}.
+ * Cursors issued by the user search index are marked as such, and those of ranked pages also carry the last row's
+ * relevance score, so a search keeps being paged by the path that started it.
+ */
+final class SearchCursor {
+
+    /**
+     * @param indexed whether the user search index issued the cursor
+     */
+    record Position(long id, Float score, boolean indexed) {
+    }
+
+    private static final char ASC = 'a';
+    private static final char DESC = 'd';
+    private static final char INDEX = '*';
+    private static final char SCORE = '~';
+
+    private SearchCursor() {
+    }
+
+    /**
+     * Returns the id to continue after, or {@code null} when no cursor was sent.
+     */
+    static Long decode(String cursor, Sort.Direction direction) {
+        Position position = decodePosition(cursor, direction);
+        return position == null ? null : position.id();
+    }
+
+    static Position decodePosition(String cursor, Sort.Direction direction) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        if (value.length() < 2 || (value.charAt(0) != ASC && value.charAt(0) != DESC)) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        if (value.charAt(0) != marker(direction)) {
+            throw new InvalidCursorException("Cursor does not match the sort order");
+        }
+        boolean indexed = value.charAt(1) == INDEX;
+        int idAt = indexed ? 2 : 1;
+        int scoreAt = value.indexOf(SCORE);
+        if (scoreAt >= 0 && !indexed) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        try {
+            if (scoreAt < 0) {
+                return new Position(Long.parseLong(value, idAt, value.length(), 10), null, indexed);
+            }
+            return new Position(Long.parseLong(value, idAt, scoreAt, 10),
+                    Float.intBitsToFloat(Integer.parseUnsignedInt(value, scoreAt + 1, value.length(), 16)), true);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    static String encode(Sort.Direction direction, long id) {
+        return encode(marker(direction) + Long.toString(id));
+    }
+
+    /**
+     * Encodes a cursor of the user search index; {@code score} is {@code null} for pages ordered by id only.
+     */
+    static String encodeIndexed(Sort.Direction direction, long id, Float score) {
+        String value = "" + marker(direction) + INDEX + id;
+        return encode(score == null ? value : value + SCORE + Integer.toHexString(Float.floatToIntBits(score)));
+    }
+
+    /**
+     * Returns the cursor for the page after {@code rows}, or {@code null} when a short page shows there is none.
+     */
+    static <T> String next(List<T> rows, int size, Sort.Direction direction, Function<T, Long> id) {
+        if (rows.isEmpty() || rows.size() < size) {
+            return null;
+        }
+        return encode(direction, id.apply(rows.get(rows.size() - 1)));
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static char marker(Sort.Direction direction) {
+        return direction.isAscending() ? ASC : DESC;
+    }
+}
@@ -0,0 +1,156 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Total match counts for the search endpoints.
+ * <ul>
+ *     <li>{@code EXACT} runs the count query on a small pool while the caller reads the page.</li>
+ *     <li>{@code CACHED} reuses an exact count of the same table, lower-cased search term and filters for
+ *     {@code ms-auth.search.total.cache-ttl}, and counts exactly on a miss.</li>
+ *     <li>{@code ESTIMATED} reads the row estimate from the database's table statistics. It only applies to searches
+ *     without a term or filters, includes soft-deleted rows and falls back to {@code CACHED} where no statistics are
+ *     available.</li>
+ * </ul>
+ * Each {@link Total} carries the strategy that actually produced it.
+ */
+@Slf4j
+@Component
+public class SearchTotals implements MeterBinder, DisposableBean {
+
+    public record Total(long count, TotalStrategy strategy) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TotalStrategy defaultStrategy;
+    private final Cache<String, Long> cache;
+    private final ThreadPoolExecutor executor;
+
+    private volatile String estimateQuery;
+
+    public SearchTotals(JdbcTemplate jdbcTemplate,
+                        @Value("${ms-auth.search.total.default-strategy:CACHED}") TotalStrategy defaultStrategy,
+                        @Value("${ms-auth.search.total.cache-ttl:PT30S}") Duration cacheTtl,
+                        @Value("${ms-auth.search.total.cache-max-size:10000}") long cacheMaxSize,
+                        @Value("${ms-auth.search.total.threads:4}") int threads,
+                        @Value("${ms-auth.search.total.queue-capacity:64}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultStrategy = defaultStrategy;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        // A saturated pool counts on the caller before the page query instead of failing the search.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("search-total-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Starts counting the matches of {@code search} in {@code table}; join the result after reading the page.
+     *
+     * @param filters   the request's other conditions in a canonical form, or {@code null} when there are none
+     * @param requested the strategy named in the request, or {@code null} for the configured default
+     * @param exact     the count query, run on another thread and outside the caller's transaction
+     */
+    public CompletableFuture<Total> count(String table, String search, String filters, String requested,
+                                         Supplier<Long> exact) {
+        TotalStrategy strategy = strategy(requested);
+
+        if (strategy == TotalStrategy.ESTIMATED && search == null && filters == null) {
+            Long estimate = estimate(table);
+            if (estimate != null) {
+                return CompletableFuture.completedFuture(new Total(estimate, TotalStrategy.ESTIMATED));
+            }
+            strategy = TotalStrategy.CACHED;
+        }
+
+        String key = table + '\u0000' + (search == null ? "" : search.toLowerCase(Locale.ROOT))
+                + '\u0000' + (filters == null ? "" : filters);
+        if (strategy != TotalStrategy.EXACT) {
+            Long cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(new Total(cached, TotalStrategy.CACHED));
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long count = exact.get();
+            cache.put(key, count);
+            return new Total(count, TotalStrategy.EXACT);
+        }, executor);
+    }
+
+    /**
+     * The strategy a request asks for: the one it names, or the configured default.
+     */
+    public TotalStrategy strategy(String requested) {
+        return requested != null ? TotalStrategy.valueOf(requested) : defaultStrategy;
+    }
+
+    private Long estimate(String table) {
+        String query = estimateQuery();
+        if (query.isEmpty()) {
+            return null;
+        }
+        try {
+            List<Long> rows = jdbcTemplate.queryForList(query, Long.class, table);
+            return rows.isEmpty() ? null : rows.get(0);
+        } catch (DataAccessException e) {
+            log.debug("Could not read the row estimate of {}", table, e);
+            return null;
+        }
+    }
+
+    // Empty when the database has no statistics we know how to read.
+    private String estimateQuery() {
+        String query = estimateQuery;
+        if (query == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            query = switch (product == null ? "" : product) {
+                case "MySQL", "MariaDB" -> "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+                case "H2" -> "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES " +
+                        "WHERE TABLE_SCHEMA = SCHEMA() AND LOWER(TABLE_NAME) = ?";
+                default -> "";
+            };
+            estimateQuery = query;
+        }
+        return query;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "searchTotal", List.of()).bindTo(registry);
+        CaffeineCacheMetrics.monitor(registry, cache, "searchTotal");
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.dtos.response.IntrospectionResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.TokenIntrospectionDto;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch counterpart of the checks {@code JwtAuthenticationFilter} runs on a bearer token: signature and expiry
+ * through {@link JwtService#verify(String)} unless the token authentication cache already holds the verified
+ * claims, then the revocation list.
+ */
+@Service
+public class TokenIntrospectionService {
+
+    private final JwtService jwtService;
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    public TokenIntrospectionService(JwtService jwtService, TokenAuthenticationCache tokenAuthenticationCache,
+                                     TokenRevocationService tokenRevocationService) {
+        this.jwtService = jwtService;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    public IntrospectionResponseDto introspect(List<String> tokens) {
+        // Gateways often batch the same token several times; verify each distinct token once.
+        Map<String, TokenIntrospectionDto> introspected = new HashMap<>();
+        List<TokenIntrospectionDto> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            results.add(introspected.computeIfAbsent(token, this::introspect));
+        }
+        return new IntrospectionResponseDto(results);
+    }
+
+    public TokenIntrospectionDto introspect(String token) {
+        TokenClaims claims = cachedClaims(token);
+        try {
+            if (claims == null) {
+                claims = jwtService.verify(token);
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            return TokenIntrospectionDto.inactive();
+        }
+        if (claims.isExpired() || tokenRevocationService.isRevoked(claims)) {
+            return TokenIntrospectionDto.inactive();
+        }
+        return TokenIntrospectionDto.builder()
+                .active(true)
+                .sub(claims.subject())
+                .uid(claims.userId())
+                .authorities(claims.authorities())
+                .exp(epochSeconds(claims.expiration()))
+                .iat(epochSeconds(claims.issuedAt()))
+                .jti(claims.id())
+                .build();
+    }
+
+    private TokenClaims cachedClaims(String token) {
+        UsernamePasswordAuthenticationToken cached = tokenAuthenticationCache.get(token);
+        return cached != null && cached.getCredentials() instanceof TokenClaims claims ? claims : null;
+    }
+
+    private static Long epochSeconds(Date date) {
+        return date == null ? null : date.getTime() / 1000;
+    }
+}
@@ -0,0 +1,182 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.RevokedToken;
+import com.jmarqb.ms.auth.app.repositories.RevokedTokenRepository;
+import com.jmarqb.ms.auth.app.security.BloomFilter;
+import com.jmarqb.ms.auth.app.security.RebuildableBloomFilter;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import com.jmarqb.ms.auth.app.utils.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Denylist of access tokens revoked before their expiry.
+ * <p>
+ * Revocations are persisted in {@code revoked_tokens} and mirrored into an in-memory Bloom filter, so checking a
+ * token that was never revoked costs two filter probes and no query; only filter hits are confirmed against the
+ * database. The filter is rebuilt page by page on startup, falling back to the database until it is complete, and
+ * again after every prune so expired entries stop occupying it. Revocations made by other instances are added by a
+ * scan of recent revocations every {@code sync-interval}.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    // Each catch-up query reaches back this far before the previous scan started, for revocations committed while a
+    // scan ran and for clock skew between instances.
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Duration accessTokenTtl;
+    private final RebuildableBloomFilter filter;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private long lastScanStart;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${ms-auth.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl,
+                                  @Value("${ms-auth.jwt.revocation.expected-entries:100000}") long expectedEntries,
+                                  @Value("${ms-auth.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.accessTokenTtl = accessTokenTtl;
+        this.filter = new RebuildableBloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        if (filter.isReady()) {
+            boolean tokenHit = claims.id() != null && filter.mightContain(key(RevokedToken.Type.TOKEN, claims.id()));
+            boolean subjectHit = filter.mightContain(key(RevokedToken.Type.SUBJECT, claims.subject()));
+            if (!tokenHit && !subjectHit) {
+                return false;
+            }
+        }
+        if (claims.id() != null && revokedTokenRepository.existsByTypeAndValue(RevokedToken.Type.TOKEN, claims.id())) {
+            return true;
+        }
+        return claims.issuedAt() != null && revokedTokenRepository.existsByTypeAndValueAndRevokedAtGreaterThanEqual(
+                RevokedToken.Type.SUBJECT, claims.subject(), claims.issuedAt());
+    }
+
+    /**
+     * Whether tokens issued to the user were revoked recently, e.g. because the user was deleted; cached copies of
+     * such a user must not be trusted.
+     */
+    public boolean isSubjectRevoked(String email) {
+        if (filter.isReady() && !filter.mightContain(key(RevokedToken.Type.SUBJECT, email))) {
+            return false;
+        }
+        return revokedTokenRepository.existsByTypeAndValueAndExpiresAtAfter(RevokedToken.Type.SUBJECT, email,
+                new Date());
+    }
+
+    public void revokeToken(TokenClaims claims) {
+        if (claims.id() == null || claims.isExpired()) {
+            return;
+        }
+        revoke(RevokedToken.Type.TOKEN, claims.id(), claims.expiration());
+    }
+
+    /**
+     * Revokes every access token issued to the user so far, e.g. because the user was deleted.
+     */
+    public void revokeSubject(String email) {
+        revoke(RevokedToken.Type.SUBJECT, email, new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${ms-auth.jwt.revocation.prune-interval:PT1H}",
+            fixedDelayString = "${ms-auth.jwt.revocation.prune-interval:PT1H}")
+    public void pruneExpired() {
+        int pruned = revokedTokenRepository.deleteExpired(new Date());
+        if (pruned > 0) {
+            log.info("Pruned {} expired token revocations", pruned);
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds the revocations made since the last scan, including those made by other instances.
+     */
+    @Scheduled(initialDelayString = "${ms-auth.jwt.revocation.sync-interval:PT5S}",
+            fixedDelayString = "${ms-auth.jwt.revocation.sync-interval:PT5S}")
+    public void catchUp() {
+        rebuildLock.lock();
+        try {
+            if (filter.isReady()) {
+                long scanStart = System.currentTimeMillis();
+                Date since = new Date(lastScanStart - CATCH_UP_OVERLAP.toMillis());
+                for (RevokedToken revoked : revokedTokenRepository.findByRevokedAtGreaterThanEqual(since)) {
+                    filter.add(key(revoked.getType(), revoked.getValue()));
+                }
+                lastScanStart = scanStart;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    void rebuild() {
+        rebuildLock.lock();
+        try {
+            long scanStart = System.currentTimeMillis();
+            Date catchUpFrom = new Date(scanStart - CATCH_UP_OVERLAP.toMillis());
+            BloomFilter rebuilt = filter.startRebuild();
+
+            Date now = new Date();
+            Pageable page = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id"));
+            long count = 0;
+            Slice<RevokedToken> slice;
+            do {
+                slice = revokedTokenRepository.findByExpiresAtAfter(now, page);
+                for (RevokedToken revoked : slice) {
+                    rebuilt.add(key(revoked.getType(), revoked.getValue()));
+                }
+                count += slice.getNumberOfElements();
+                page = slice.nextPageable();
+            } while (slice.hasNext());
+
+            for (RevokedToken revoked : revokedTokenRepository.findByRevokedAtGreaterThanEqual(catchUpFrom)) {
+                rebuilt.add(key(revoked.getType(), revoked.getValue()));
+            }
+            filter.complete(rebuilt);
+            lastScanStart = scanStart;
+            log.debug("Token revocation filter rebuilt with {} entries", count);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void revoke(RevokedToken.Type type, String value, Date expiresAt) {
+        revokedTokenRepository.save(RevokedToken.builder()
+                .type(type)
+                .value(value)
+                .revokedAt(new Date())
+                .expiresAt(expiresAt)
+                .build());
+
+        String key = key(type, value);
+        AfterCommit.run(() -> filter.add(key));
+    }
+
+    private static String key(RevokedToken.Type type, String value) {
+        return type.name() + ':' + value;
+    }
+}
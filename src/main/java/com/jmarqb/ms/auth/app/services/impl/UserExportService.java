@@ -0,0 +1,194 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.dtos.request.UserExportDto;
+import com.jmarqb.ms.auth.app.enums.FileFormat;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.enums.SearchMode;
+import com.jmarqb.ms.auth.app.utils.StreamingQueries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes active users as NDJSON or CSV straight from a forward-only result set, one row at a time, so memory use does
+ * not grow with the number of users exported.
+ * <p>
+ * The filters match the same users as {@code /api/users/search} with the same {@code search}, {@code mode},
+ * {@code gender} and {@code country}.
+ */
+@Service
+public class UserExportService {
+
+    static final String[] COLUMNS = {"id", "email", "firstName", "lastName", "phone", "age", "gender", "country"};
+
+    private static final Gender[] GENDERS = Gender.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public UserExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                             @Value("${ms-auth.user-export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Streams the matching users to {@code out} and flushes it; {@code out} is left open.
+     */
+    public void export(UserExportDto filters, FileFormat format, OutputStream out) throws IOException {
+        List<Object> args = new ArrayList<>();
+        String sql = query(filters, args);
+        RowWriter writer = format == FileFormat.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+
+        try {
+            jdbcTemplate.query(connection -> statement(connection, sql, args), (RowCallbackHandler) rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String query(UserExportDto filters, List<Object> args) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, email, firstname, lastname, phone, age, gender, country FROM users WHERE deleted = false");
+        if (filters.getGender() != null) {
+            sql.append(" AND gender = ?");
+            args.add(Gender.valueOf(filters.getGender()).ordinal());
+        }
+        if (filters.getCountry() != null) {
+            sql.append(" AND lower(country) = lower(?)");
+            args.add(filters.getCountry());
+        }
+        String search = filters.getSearch();
+        if (search != null && SearchMode.PREFIX.name().equals(filters.getMode())) {
+            String prefix = UserServiceImpl.prefixPattern(search);
+            sql.append(" AND (email_normalized LIKE ? ESCAPE '!' OR lastname_normalized LIKE ? ESCAPE '!')");
+            args.add(prefix);
+            args.add(prefix);
+        } else if (search != null) {
+            String contains = "%" + search.toLowerCase(Locale.ROOT) + "%";
+            sql.append(" AND (lower(email) LIKE ? OR lower(firstname) LIKE ? OR lower(lastname) LIKE ?)");
+            args.add(contains);
+            args.add(contains);
+            args.add(contains);
+        }
+        sql.append("DESC".equalsIgnoreCase(filters.getSort()) ? " ORDER BY id DESC" : " ORDER BY id");
+        return sql.toString();
+    }
+
+    private PreparedStatement statement(Connection connection, String sql, List<Object> args) throws SQLException {
+        PreparedStatement statement = StreamingQueries.prepare(connection, sql, fetchSize);
+        for (int i = 0; i < args.size(); i++) {
+            statement.setObject(i + 1, args.get(i));
+        }
+        return statement;
+    }
+
+    private interface RowWriter {
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField(COLUMNS[0], rs.getLong(1));
+            for (int i = 1; i < 5; i++) {
+                generator.writeStringField(COLUMNS[i], rs.getString(i + 1));
+            }
+            generator.writeNumberField(COLUMNS[5], rs.getInt(6));
+            generator.writeStringField(COLUMNS[6], gender(rs));
+            generator.writeStringField(COLUMNS[7], rs.getString(8));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write(String.join(",", COLUMNS));
+            this.writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(csv(i == 7 ? gender(rs) : rs.getString(i)));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static String gender(ResultSet rs) throws SQLException {
+        int ordinal = rs.getInt(7);
+        return rs.wasNull() ? null : GENDERS[ordinal].name();
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, doubling the quotes.
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
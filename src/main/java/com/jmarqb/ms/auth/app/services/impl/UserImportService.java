@@ -0,0 +1,420 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jmarqb.ms.auth.app.dtos.request.CreateUserDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserImportResponseDto;
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.FileFormat;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.exceptions.UserImportUnavailableException;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.security.BoundedPasswordEncoder;
+import com.jmarqb.ms.auth.app.utils.StreamingQueries;
+import com.jmarqb.ms.auth.app.validation.ExistEmailValidation;
+import com.jmarqb.ms.auth.app.validation.ExistPhoneValidation;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Configuration;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from an NDJSON or CSV stream with the fields of {@code POST /api/signup}.
+ * <p>
+ * Rows are validated in memory: the existing emails and phones are loaded once, so duplicates against the database
+ * and within the file cost no query. Passwords of valid rows are hashed in parallel on a dedicated pool while the
+ * file is still being read, and rows are written with JDBC batches in one transaction per {@code chunk-size} rows.
+ * A chunk that conflicts with a user created concurrently is retried row by row. Every rejected row is reported with
+ * its line; the import never stops on a bad row.
+ * <p>
+ * The existing keys are read from a forward-only result set, {@code fetch-size} rows per round trip, and at most
+ * {@code max-concurrent} imports run at a time on each instance; further ones are turned away with
+ * {@link UserImportUnavailableException}.
+ */
+@Slf4j
+@Service
+public class UserImportService implements DisposableBean {
+
+    private static final String DUPLICATE = "the email or phone already exists";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader rowReader;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final UserSearchIndex userSearchIndex;
+    private final ValidatorFactory validatorFactory;
+    private final Validator validator;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final int fetchSize;
+    private final Semaphore running;
+
+    public UserImportService(JdbcTemplate jdbcTemplate, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper, UserRepository userRepository, RoleRepository roleRepository,
+                             BoundedPasswordEncoder passwordEncoder, RegisteredEmailFilter registeredEmailFilter,
+                             UserSearchIndex userSearchIndex,
+                             @Value("${ms-auth.user-import.chunk-size:500}") int chunkSize,
+                             @Value("${ms-auth.user-import.hash-threads:0}") int hashThreads,
+                             @Value("${ms-auth.user-import.max-reported-errors:1000}") int maxReportedErrors,
+                             @Value("${ms-auth.user-import.fetch-size:500}") int fetchSize,
+                             @Value("${ms-auth.user-import.max-concurrent:2}") int maxConcurrent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rowReader = objectMapper.readerFor(CreateUserDto.class);
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        // Imports bring their own pool so they cannot fill the login bulkhead's queue.
+        this.passwordEncoder = passwordEncoder.delegate();
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.userSearchIndex = userSearchIndex;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.fetchSize = fetchSize;
+        this.running = new Semaphore(maxConcurrent);
+
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        // Callers run the hash themselves when the queue is full, which also throttles reading the file.
+        this.hashingExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chunkSize), new CustomizableThreadFactory("user-import-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Configuration<?> configuration = Validation.byDefaultProvider().configure();
+        this.validatorFactory = configuration
+                .constraintValidatorFactory(new PreloadedUniqueness(configuration.getDefaultConstraintValidatorFactory()))
+                .buildValidatorFactory();
+        this.validator = validatorFactory.getValidator();
+    }
+
+    public UserImportResponseDto importUsers(InputStream in, FileFormat format) throws IOException {
+        if (!running.tryAcquire()) {
+            throw new UserImportUnavailableException("Too many imports in progress, try again later");
+        }
+        try {
+            return run(in, format);
+        } finally {
+            running.release();
+        }
+    }
+
+    private UserImportResponseDto run(InputStream in, FileFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Rows rows = format == FileFormat.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+        Role role = roleRepository.findByName("USER")
+                .orElseThrow(() -> new RuntimeException("Default role ROLE_USER not found."));
+        Import run = new Import(role);
+
+        Row row;
+        while ((row = rows.next()) != null) {
+            run.received++;
+            run.accept(row);
+            if (run.pending.size() >= chunkSize) {
+                run.flush();
+            }
+        }
+        run.flush();
+
+        if (run.imported > 0) {
+            userSearchIndex.catchUp();
+        }
+        log.info("Imported {} of {} users, {} rejected", run.imported, run.received, run.failed);
+        return UserImportResponseDto.builder()
+                .received(run.received)
+                .imported(run.imported)
+                .failed(run.failed)
+                .errorsTruncated(run.failed > run.errors.size())
+                .errors(run.errors)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdownNow();
+        validatorFactory.close();
+    }
+
+    private record Row(int line, CreateUserDto user, String error) {
+    }
+
+    private record PendingUser(int line, CreateUserDto user, CompletableFuture<String> password) {
+    }
+
+    private record HashedUser(int line, CreateUserDto user, String password) {
+    }
+
+    private final class Import {
+
+        private final Role role;
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> phones = new HashSet<>();
+        private final List<PendingUser> pending = new ArrayList<>(chunkSize);
+        private final List<UserImportResponseDto.RowError> errors = new ArrayList<>();
+        private int received;
+        private int imported;
+        private int failed;
+
+        Import(Role role) {
+            this.role = role;
+            // Deleted users keep their email and phone, and the unique constraints still apply to them.
+            jdbcTemplate.query(connection -> StreamingQueries.prepare(connection, "SELECT email, phone FROM users",
+                    fetchSize), (RowCallbackHandler) rs -> {
+                emails.add(key(rs.getString(1)));
+                String phone = rs.getString(2);
+                if (phone != null) {
+                    phones.add(phone);
+                }
+            });
+        }
+
+        void accept(Row row) {
+            CreateUserDto user = row.user();
+            if (row.error() != null) {
+                reject(row.line(), user != null ? user.getEmail() : null, row.error());
+                return;
+            }
+            Set<ConstraintViolation<CreateUserDto>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                reject(row.line(), user.getEmail(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            String email = key(user.getEmail());
+            if (!emails.add(email)) {
+                reject(row.line(), user.getEmail(), "email: the email already exists");
+                return;
+            }
+            if (!phones.add(user.getPhone())) {
+                emails.remove(email);
+                reject(row.line(), user.getEmail(), "phone: the phone already exists");
+                return;
+            }
+            String rawPassword = user.getPassword();
+            pending.add(new PendingUser(row.line(), user,
+                    CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), hashingExecutor)));
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<HashedUser> chunk = new ArrayList<>(pending.size());
+            for (PendingUser user : pending) {
+                try {
+                    chunk.add(new HashedUser(user.line(), user.user(), user.password().join()));
+                } catch (CompletionException e) {
+                    log.warn("Hashing the password of line {} failed", user.line(), e.getCause());
+                    reject(user.line(), user.user().getEmail(), "password: could not be hashed");
+                }
+            }
+            pending.clear();
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(chunk));
+                registered(chunk);
+            } catch (DataIntegrityViolationException e) {
+                // Someone else created one of these users after the keys were loaded; find out which.
+                for (HashedUser user : chunk) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> insert(List.of(user)));
+                        registered(List.of(user));
+                    } catch (DataIntegrityViolationException duplicate) {
+                        reject(user.line(), user.user().getEmail(), DUPLICATE);
+                    }
+                }
+            }
+        }
+
+        private void insert(List<HashedUser> chunk) {
+            List<User> users = new ArrayList<>(chunk.size());
+            for (HashedUser hashed : chunk) {
+                CreateUserDto user = hashed.user();
+                users.add(User.builder()
+                        .firstName(user.getFirstName())
+                        .lastName(user.getLastName())
+                        .email(user.getEmail())
+                        .password(hashed.password())
+                        .phone(user.getPhone())
+                        .age(user.getAge())
+                        .gender(Gender.valueOf(user.getGender()))
+                        .country(user.getCountry())
+                        .roles(new ArrayList<>(List.of(role)))
+                        .build());
+            }
+            // Pooled ids let Hibernate send the users and their role rows as JDBC batches.
+            userRepository.saveAllAndFlush(users);
+            // Detach the chunk, so the persistence context, and each later flush's dirty check, stays chunk-sized.
+            entityManager.clear();
+        }
+
+        private void registered(List<HashedUser> chunk) {
+            for (HashedUser user : chunk) {
+                registeredEmailFilter.register(user.user().getEmail());
+            }
+            imported += chunk.size();
+        }
+
+        private void reject(int line, String email, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(UserImportResponseDto.RowError.builder().line(line).email(email).message(message).build());
+            }
+        }
+    }
+
+    private interface Rows {
+
+        /**
+         * The next non-blank row, or {@code null} at the end of the input.
+         */
+        Row next() throws IOException;
+    }
+
+    private final class NdjsonRows implements Rows {
+
+        private final BufferedReader reader;
+        private int line;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new Row(line, rowReader.readValue(text), null);
+                } catch (JsonProcessingException e) {
+                    return new Row(line, null, "malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class CsvRows implements Rows {
+
+        private final CsvRecords records;
+        private final Map<String, Integer> header = new HashMap<>();
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.records = new CsvRecords(reader);
+            List<String> names = records.next();
+            if (names != null) {
+                for (int i = 0; i < names.size(); i++) {
+                    header.put(names.get(i).trim(), i);
+                }
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> fields;
+            while ((fields = records.next()) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                CreateUserDto user = CreateUserDto.builder()
+                        .firstName(field(fields, "firstName"))
+                        .lastName(field(fields, "lastName"))
+                        .email(field(fields, "email"))
+                        .password(field(fields, "password"))
+                        .phone(field(fields, "phone"))
+                        .gender(field(fields, "gender"))
+                        .country(field(fields, "country"))
+                        .build();
+                String age = field(fields, "age");
+                try {
+                    user.setAge(age == null ? 0 : Integer.parseInt(age.trim()));
+                } catch (NumberFormatException e) {
+                    return new Row(records.line(), user, "age: must be a number");
+                }
+                return new Row(records.line(), user, null);
+            }
+            return null;
+        }
+
+        private String field(List<String> fields, String name) {
+            Integer index = header.get(name);
+            if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+                return null;
+            }
+            return fields.get(index);
+        }
+    }
+
+    // @ExistEmail and @ExistPhone would query per row; uniqueness is checked against the preloaded keys instead.
+    private record PreloadedUniqueness(ConstraintValidatorFactory delegate) implements ConstraintValidatorFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+            if (key == ExistEmailValidation.class) {
+                return (T) new ExistEmailValidation(null);
+            }
+            if (key == ExistPhoneValidation.class) {
+                return (T) new ExistPhoneValidation(null);
+            }
+            return delegate.getInstance(key);
+        }
+
+        @Override
+        public void releaseInstance(ConstraintValidator<?, ?> instance) {
+            delegate.releaseInstance(instance);
+        }
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,480 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
+import com.jmarqb.ms.auth.app.repositories.SearchableUser;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.utils.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Embedded Lucene index over the email, names, gender and country of active users, serving {@code /api/users/search}
+ * without the full table scans of {@code LIKE '%term%'}.
+ * <p>
+ * A term matches the same users as the database query: a case-insensitive substring of the email, first name or
+ * last name. Matching uses n-gram fields, so terms of three or more characters are phrase queries over trigrams. Whole
+ * words and word prefixes add to the relevance score, and results with a term are ranked by score, then by id.
+ * <p>
+ * This instance's writes are visible as soon as their transaction commits. Users created, updated or deleted by
+ * other instances are picked up every {@code sync-interval} by a scan of recently updated users. Every
+ * {@code rebuild-interval} the index is compared with the table, and rebuilt when their counts differ on two checks
+ * in a row. With a {@code path}, the index is kept on disk along with the start of its last scan, so a restart only
+ * catches up from there instead of rebuilding; an empty {@code path} keeps it in memory. Until the startup rebuild or
+ * catch-up has completed, {@link #isReady()} is false and searches go to the database.
+ */
+@Slf4j
+@Service
+public class UserSearchIndex implements DisposableBean {
+
+    public record Hits(List<Long> ids, long total, String nextCursor) {
+    }
+
+    static final String KEY = "key";
+    static final String ID = "id";
+    static final String GENERATION = "generation";
+    static final String WORDS = "words";
+    static final String GENDER = "gender";
+    static final String COUNTRY = "country";
+    // Commit data: the start of the last scan, from which a reopened index catches up.
+    static final String SCANNED_AT = "scannedAt";
+    // Substring matching: unigrams and bigrams for one- and two-character terms, trigram phrases for longer ones.
+    static final String[] GRAMS = {"grams1", "grams2", "grams3"};
+
+    private static final int PAGE_SIZE = 1000;
+    private static final float WORD_BOOST = 2f;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Analyzer analyzer;
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private volatile boolean ready;
+    private boolean built;
+    private long lastScanStart;
+    private boolean drifted;
+
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${ms-auth.user-search.index.enabled:true}") boolean enabled,
+                           @Value("${ms-auth.user-search.index.path:}") String path) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), Map.of(
+                GRAMS[0], grams(1), GRAMS[1], grams(2), GRAMS[2], grams(3)));
+        if (!enabled) {
+            this.directory = null;
+            this.writer = null;
+            this.searcherManager = null;
+            return;
+        }
+        try {
+            this.directory = path.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(path));
+            this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the user search index at " + path, e);
+        }
+        // An index kept on disk only serves searches once the startup catch-up has applied what changed since.
+        for (Map.Entry<String, String> data : writer.getLiveCommitData()) {
+            if (SCANNED_AT.equals(data.getKey())) {
+                this.lastScanStart = Long.parseLong(data.getValue());
+                this.built = true;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Indexes the user's current fields once the surrounding transaction commits.
+     */
+    public void indexAfterCommit(User user) {
+        if (enabled) {
+            SearchableUser snapshot = SearchableUser.of(user);
+            AfterCommit.run(() -> update(List.of(snapshot), System.currentTimeMillis()));
+        }
+    }
+
+    public void removeAfterCommit(Long id) {
+        if (enabled) {
+            AfterCommit.run(() -> {
+                try {
+                    writer.deleteDocuments(new Term(KEY, id.toString()));
+                    searcherManager.maybeRefreshBlocking();
+                } catch (IOException e) {
+                    log.warn("Could not remove user {} from the search index; the next rebuild will", id, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the ids of one page of matching users, in result order.
+     *
+     * @param page   ignored when a cursor is given
+     * @param cursor a {@code nextCursor} previously returned for the same search, or {@code null}
+     */
+    public Hits search(String term, Gender gender, String country, org.springframework.data.domain.Sort.Direction direction,
+                       int page, int size, String cursor) {
+        boolean ranked = term != null && !term.isEmpty();
+        Query query = query(term, gender, country);
+        SortField id = new SortField(ID, SortField.Type.LONG, !direction.isAscending());
+        Sort sort = ranked ? new Sort(SortField.FIELD_SCORE, id) : new Sort(id);
+        SearchCursor.Position position = SearchCursor.decodePosition(cursor, direction);
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] scoreDocs;
+                int from;
+                if (position == null) {
+                    int hits = (int) Math.min((long) (page + 1) * size, Integer.MAX_VALUE);
+                    scoreDocs = searcher.search(query, hits, sort, true).scoreDocs;
+                    from = (int) Math.min((long) page * size, scoreDocs.length);
+                } else {
+                    scoreDocs = searcher.searchAfter(after(position, ranked, searcher.getIndexReader().maxDoc()), query, size, sort, true).scoreDocs;
+                    from = 0;
+                }
+
+                List<Long> ids = new ArrayList<>(scoreDocs.length - from);
+                for (int i = from; i < scoreDocs.length; i++) {
+                    ids.add((Long) ((FieldDoc) scoreDocs[i]).fields[ranked ? 1 : 0]);
+                }
+                String nextCursor = null;
+                if (ids.size() == size) {
+                    FieldDoc last = (FieldDoc) scoreDocs[scoreDocs.length - 1];
+                    nextCursor = ranked
+                            ? SearchCursor.encodeIndexed(direction, (Long) last.fields[1], (Float) last.fields[0])
+                            : SearchCursor.encodeIndexed(direction, (Long) last.fields[0], null);
+                }
+                return new Hits(ids, searcher.count(query), nextCursor);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (built) {
+            catchUp();
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index when, after a catch-up, it holds a different number of users than the table on two checks in
+     * a row. Catch-ups keep it current, so a difference that lasts means writes were missed; one that does not is a
+     * write made between the catch-up and the count.
+     */
+    @Scheduled(initialDelayString = "${ms-auth.user-search.index.rebuild-interval:PT1H}",
+            fixedDelayString = "${ms-auth.user-search.index.rebuild-interval:PT1H}")
+    public void scheduledRebuild() {
+        if (!enabled) {
+            return;
+        }
+        if (!built) {
+            rebuild();
+            return;
+        }
+        catchUp();
+        long active = userRepository.countByDeletedFalse();
+        long indexed;
+        try {
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                indexed = searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        boolean differs = indexed != active;
+        if (differs && drifted) {
+            log.info("User search index holds {} users and the table {}; rebuilding", indexed, active);
+            rebuild();
+            differs = false;
+        }
+        drifted = differs;
+    }
+
+    /**
+     * Re-indexes the users updated since the last scan and drops those deleted since, including changes made by other
+     * instances, and commits the index to its directory.
+     */
+    @Scheduled(initialDelayString = "${ms-auth.user-search.index.sync-interval:PT5S}",
+            fixedDelayString = "${ms-auth.user-search.index.sync-interval:PT5S}")
+    public void catchUp() {
+        if (!enabled) {
+            return;
+        }
+        scanLock.lock();
+        try {
+            if (built) {
+                long scanStart = System.currentTimeMillis();
+                Date since = new Date(lastScanStart - RegisteredEmailFilter.SCAN_OVERLAP_MILLIS);
+                load((lastId, page) -> userRepository.findSearchableUsersUpdatedSince(since, lastId, page), scanStart);
+                removeDeletedSince(since);
+                lastScanStart = scanStart;
+                ready = true;
+            }
+            if (writer.hasUncommittedChanges()) {
+                commit();
+            }
+        } catch (IOException e) {
+            log.warn("User search index catch-up failed", e);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Re-indexes every active user in id order, then drops the documents the scan did not touch. Searches keep being
+     * answered from the previous documents while it runs.
+     */
+    void rebuild() {
+        scanLock.lock();
+        try {
+            long generation = System.currentTimeMillis();
+            int indexed = load(userRepository::findSearchableUsersAfter, generation);
+            writer.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, generation - 1));
+            lastScanStart = generation;
+            commit();
+            searcherManager.maybeRefreshBlocking();
+            built = true;
+            ready = true;
+            log.debug("User search index rebuilt with {} users", indexed);
+        } catch (IOException e) {
+            log.warn("User search index rebuild failed", e);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (enabled) {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        }
+    }
+
+    // Only called with scanLock held, so the recorded scan start matches the documents committed with it.
+    private void commit() throws IOException {
+        writer.setLiveCommitData(Map.of(SCANNED_AT, Long.toString(lastScanStart)).entrySet());
+        writer.commit();
+    }
+
+    private int load(BiFunction<Long, Pageable, List<SearchableUser>> pageAfter, long generation) throws IOException {
+        long lastId = 0L;
+        int loaded = 0;
+        List<SearchableUser> page;
+        do {
+            page = pageAfter.apply(lastId, PageRequest.ofSize(PAGE_SIZE));
+            for (SearchableUser user : page) {
+                writer.updateDocument(new Term(KEY, user.id().toString()), document(user, generation));
+                lastId = user.id();
+            }
+            if (!page.isEmpty()) {
+                searcherManager.maybeRefreshBlocking();
+            }
+            loaded += page.size();
+        } while (page.size() == PAGE_SIZE);
+        return loaded;
+    }
+
+    private void removeDeletedSince(Date since) throws IOException {
+        long lastId = 0L;
+        List<Long> page;
+        do {
+            page = userRepository.findDeletedUserIdsUpdatedSince(since, lastId, PageRequest.ofSize(PAGE_SIZE));
+            for (Long id : page) {
+                writer.deleteDocuments(new Term(KEY, id.toString()));
+                lastId = id;
+            }
+            if (!page.isEmpty()) {
+                searcherManager.maybeRefreshBlocking();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void update(List<SearchableUser> users, long generation) {
+        try {
+            for (SearchableUser user : users) {
+                writer.updateDocument(new Term(KEY, user.id().toString()), document(user, generation));
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.warn("Could not update the search index; the next rebuild will", e);
+        }
+    }
+
+    private static Document document(SearchableUser user, long generation) {
+        Document document = new Document();
+        document.add(new StringField(KEY, user.id().toString(), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, user.id()));
+        document.add(new LongPoint(GENERATION, generation));
+        for (String value : new String[]{user.email(), user.firstName(), user.lastName()}) {
+            if (value != null) {
+                document.add(new TextField(WORDS, value, Field.Store.NO));
+                for (String grams : GRAMS) {
+                    document.add(new TextField(grams, value, Field.Store.NO));
+                }
+            }
+        }
+        if (user.gender() != null) {
+            document.add(new StringField(GENDER, user.gender().name(), Field.Store.NO));
+        }
+        if (user.country() != null) {
+            document.add(new StringField(COUNTRY, user.country().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private Query query(String term, Gender gender, String country) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean empty = true;
+        if (term != null && !term.isEmpty()) {
+            query.add(substring(term.toLowerCase(Locale.ROOT)), BooleanClause.Occur.MUST);
+            for (String word : words(term)) {
+                query.add(new BoostQuery(new TermQuery(new Term(WORDS, word)), WORD_BOOST), BooleanClause.Occur.SHOULD);
+                query.add(new PrefixQuery(new Term(WORDS, word)), BooleanClause.Occur.SHOULD);
+            }
+            empty = false;
+        }
+        if (gender != null) {
+            query.add(new TermQuery(new Term(GENDER, gender.name())), BooleanClause.Occur.FILTER);
+            empty = false;
+        }
+        if (country != null) {
+            query.add(new TermQuery(new Term(COUNTRY, country.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+            empty = false;
+        }
+        return empty ? new MatchAllDocsQuery() : query.build();
+    }
+
+    private static Query substring(String term) {
+        int[] codePoints = term.codePoints().toArray();
+        if (codePoints.length < GRAMS.length) {
+            return new TermQuery(new Term(GRAMS[codePoints.length - 1], term));
+        }
+        PhraseQuery.Builder phrase = new PhraseQuery.Builder();
+        for (int i = 0; i + GRAMS.length <= codePoints.length; i++) {
+            phrase.add(new Term(GRAMS[GRAMS.length - 1], new String(codePoints, i, GRAMS.length)), i);
+        }
+        return phrase.build();
+    }
+
+    private List<String> words(String term) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream(WORDS, term)) {
+            CharTermAttribute word = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(word.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    // Ids are unique, so the doc id never breaks a tie; it only has to be within the reader.
+    private static FieldDoc after(SearchCursor.Position position, boolean ranked, int maxDoc) {
+        int doc = Math.max(maxDoc - 1, 0);
+        if (!ranked) {
+            return new FieldDoc(doc, Float.NaN, new Object[]{position.id()});
+        }
+        if (position.score() == null) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return new FieldDoc(doc, position.score(), new Object[]{position.score(), position.id()});
+    }
+
+    private static Analyzer grams(int size) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new NGramTokenizer(size, size);
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+
+            // Keeps trigram phrases from matching across the email and the names.
+            @Override
+            public int getPositionIncrementGap(String fieldName) {
+                return 100;
+            }
+        };
+    }
+}
@@ -4,21 +4,30 @@ import com.jmarqb.ms.auth.app.dtos.request.*;
 import com.jmarqb.ms.auth.app.dtos.response.*;
 import com.jmarqb.ms.auth.app.entities.*;
 import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.enums.SearchMode;
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
 import com.jmarqb.ms.auth.app.exceptions.DuplicateKeyException;
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
 import com.jmarqb.ms.auth.app.exceptions.UserNotFoundException;
 import com.jmarqb.ms.auth.app.repositories.*;
+import com.jmarqb.ms.auth.app.security.UserDetailsCache;
 import com.jmarqb.ms.auth.app.services.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserServiceImpl implements UserService {
 
+    // Keeps the IN lists of bulk role assignment well under the databases' parameter limits.
+    private static final int ROLE_ASSIGNMENT_CHUNK = 1000;
+
     private final UserRepository userRepository;
 
     private final RoleRepository roleRepository;
@@ -27,11 +36,37 @@ public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
 
-    public UserServiceImpl(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, UserMapper userMapper) {
+    private final UserDetailsCache userDetailsCache;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final RegisteredEmailFilter registeredEmailFilter;
+
+    private final SearchTotals searchTotals;
+
+    private final UserSearchIndex userSearchIndex;
+
+    private final int autocompleteMaxLimit;
+
+    public UserServiceImpl(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                           UserMapper userMapper, UserDetailsCache userDetailsCache,
+                           TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService,
+                           RegisteredEmailFilter registeredEmailFilter, SearchTotals searchTotals,
+                           UserSearchIndex userSearchIndex,
+                           @Value("${ms-auth.user-search.autocomplete.max-limit:20}") int autocompleteMaxLimit) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.userMapper = userMapper;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.searchTotals = searchTotals;
+        this.userSearchIndex = userSearchIndex;
+        this.autocompleteMaxLimit = autocompleteMaxLimit;
     }
 
     @Transactional
@@ -48,6 +83,8 @@ public class UserServiceImpl implements UserService {
             newUser.getRoles().add(role.get());
 
             User savedUser = userRepository.save(newUser);
+            registeredEmailFilter.register(savedUser.getEmail());
+            userSearchIndex.indexAfterCommit(savedUser);
             CreateUserResponseDto response = userMapper.toResponse(savedUser);
             response.setRoles(savedUser.getRoles().stream().map(userMapper::map).toList());
             return response;
@@ -63,24 +100,218 @@ public class UserServiceImpl implements UserService {
         try {
             List<User> users;
             String search = searchBodyDto.getSearch();
+            Gender gender = searchBodyDto.getGender() != null ? Gender.valueOf(searchBodyDto.getGender()) : null;
+            String country = searchBodyDto.getCountry();
+            Sort.Direction direction = searchBodyDto.getSort().equalsIgnoreCase("asc") ?
+                    Sort.Direction.ASC : Sort.Direction.DESC;
+
+            String prefix = search != null && SearchMode.PREFIX.name().equals(searchBodyDto.getMode())
+                    ? prefixPattern(search) : null;
+
+            // The index only answers contains searches; prefix searches are index range scans in the database.
+            SearchCursor.Position position = SearchCursor.decodePosition(searchBodyDto.getCursor(), direction);
+            if (prefix == null && searchesIndex(position)) {
+                return searchIndex(searchBodyDto, gender, direction);
+            }
 
-            Pageable pageable = PageRequest.of(searchBodyDto.getPage(), searchBodyDto.getSize(),
-                    searchBodyDto.getSort().equalsIgnoreCase("asc") ?
-                            Sort.Direction.ASC : Sort.Direction.DESC, "id");
-
-            users = (search != null) ? userRepository.searchAllByRegex(search, pageable) : userRepository.searchAll(pageable);
+            Long after = position == null ? null : position.id();
+            CompletableFuture<SearchTotals.Total> total = countMatches(search, prefix, gender, country,
+                    searchBodyDto.getTotalStrategy());
+
+            if (prefix != null) {
+                users = searchByPrefix(prefix, gender, country, direction, after,
+                        after == null ? searchBodyDto.getPage() * searchBodyDto.getSize() : 0,
+                        searchBodyDto.getSize());
+            } else {
+                if (after == null) {
+                    Pageable pageable = PageRequest.of(searchBodyDto.getPage(), searchBodyDto.getSize(), direction,
+                            "id");
+
+                    users = (search != null) ? userRepository.searchAllByRegex(search, gender, country, pageable)
+                            : userRepository.searchAll(gender, country, pageable);
+                } else {
+                    users = searchAfter(search, gender, country, after, direction, searchBodyDto.getSize());
+                }
+                // One statement for the roles of the whole page instead of one per user while mapping.
+                if (!users.isEmpty()) {
+                    userRepository.findAllWithRolesByIdIn(users.stream().map(User::getId).toList());
+                }
+            }
 
             List<CreateUserResponseDto> response = new ArrayList<>();
             users.forEach(user -> response.add(userMapper.toResponse(user)));
 
-            return userMapper.toPaginatedResponse(response, users.size(), searchBodyDto.getPage(), searchBodyDto.getSize(),
-                    new Date());
-
-        }catch (Exception e){
+            SearchTotals.Total matches = total.join();
+            PaginatedResponseDto paginatedResponse = userMapper.toPaginatedResponse(response,
+                    (int) Math.min(matches.count(), Integer.MAX_VALUE), searchBodyDto.getPage(),
+                    searchBodyDto.getSize(), new Date());
+            paginatedResponse.setTotalStrategy(matches.strategy().name());
+            paginatedResponse.setNextCursor(SearchCursor.next(users, searchBodyDto.getSize(), direction, User::getId));
+            return paginatedResponse;
+
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (Exception e){
             throw new RuntimeException("Error searching users", e);
         }
     }
 
+    // A cursor is followed on the path that issued it: the index ranks term searches by score, the database orders
+    // them by id. An index page in id order can go on in the database while this instance's index is not ready.
+    private boolean searchesIndex(SearchCursor.Position position) {
+        if (position == null) {
+            return userSearchIndex.isReady();
+        }
+        if (!position.indexed() || userSearchIndex.isReady()) {
+            return position.indexed();
+        }
+        if (position.score() != null) {
+            throw new InvalidCursorException("Cursor is no longer valid; repeat the search without it");
+        }
+        return false;
+    }
+
+    private CompletableFuture<SearchTotals.Total> countMatches(String search, String prefix, Gender gender,
+                                                               String country, String requested) {
+        String filters = prefix == null && gender == null && country == null ? null
+                : (prefix != null ? SearchMode.PREFIX : SearchMode.CONTAINS) + "|" + gender + "|"
+                + (country == null ? null : country.toLowerCase(Locale.ROOT));
+        return searchTotals.count("users", search, filters, requested,
+                () -> prefix != null ? userRepository.countAllByPrefix(prefix, gender, country)
+                        : search != null ? userRepository.countAllByRegex(search, gender, country)
+                        : userRepository.countAll(gender, country));
+    }
+
+    // The index returns ids in result order; rows are then read by primary key. The index may lag other instances'
+    // writes by a sync interval, so rows deleted or no longer matching meanwhile are dropped from the page, and its
+    // count is only reported as an estimate unless the request asks for an exact one.
+    private PaginatedResponseDto searchIndex(SearchBodyDto searchBodyDto, Gender gender, Sort.Direction direction) {
+        String search = searchBodyDto.getSearch();
+        String country = searchBodyDto.getCountry();
+        CompletableFuture<SearchTotals.Total> exactTotal =
+                searchTotals.strategy(searchBodyDto.getTotalStrategy()) == TotalStrategy.EXACT
+                        ? countMatches(search, null, gender, country, TotalStrategy.EXACT.name()) : null;
+        UserSearchIndex.Hits hits = userSearchIndex.search(search, gender, country, direction,
+                searchBodyDto.getPage(), searchBodyDto.getSize(), searchBodyDto.getCursor());
+
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllWithRolesByIdIn(hits.ids()).forEach(user -> users.put(user.getId(), user));
+
+        List<CreateUserResponseDto> response = new ArrayList<>();
+        for (Long id : hits.ids()) {
+            User user = users.get(id);
+            if (user != null && stillMatches(user, search, gender, country)) {
+                response.add(userMapper.toResponse(user));
+            }
+        }
+
+        SearchTotals.Total total = exactTotal != null ? exactTotal.join()
+                : new SearchTotals.Total(hits.total(), TotalStrategy.ESTIMATED);
+        PaginatedResponseDto paginatedResponse = userMapper.toPaginatedResponse(response,
+                (int) Math.min(total.count(), Integer.MAX_VALUE), searchBodyDto.getPage(), searchBodyDto.getSize(),
+                new Date());
+        paginatedResponse.setTotalStrategy(total.strategy().name());
+        paginatedResponse.setNextCursor(hits.nextCursor());
+        return paginatedResponse;
+    }
+
+    // The conditions of the database search, applied to a loaded row.
+    private static boolean stillMatches(User user, String search, Gender gender, String country) {
+        if (user.isDeleted() || (gender != null && gender != user.getGender())
+                || (country != null && !country.equalsIgnoreCase(user.getCountry()))) {
+            return false;
+        }
+        if (search == null || search.isEmpty()) {
+            return true;
+        }
+        String term = search.toLowerCase(Locale.ROOT);
+        for (String value : new String[]{user.getEmail(), user.getFirstName(), user.getLastName()}) {
+            if (value != null && value.toLowerCase(Locale.ROOT).contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<User> searchAfter(String search, Gender gender, String country, Long after,
+                                   Sort.Direction direction, int size) {
+        Pageable limit = PageRequest.of(0, size, direction, "id");
+        if (direction.isAscending()) {
+            return (search != null) ? userRepository.searchAllByRegexAfter(search, after, gender, country, limit)
+                    : userRepository.searchAllAfter(after, gender, country, limit);
+        }
+        return (search != null) ? userRepository.searchAllByRegexBefore(search, after, gender, country, limit)
+                : userRepository.searchAllBefore(after, gender, country, limit);
+    }
+
+    // Reads the first offset + size matching ids of each normalized column and merges them in id order; the page is
+    // then loaded with its roles in one statement. Each query scans the column's index over the whole prefix and
+    // sorts the ids it finds, so its cost follows the number of users matching the prefix, not the page size.
+    private List<User> searchByPrefix(String prefix, Gender gender, String country, Sort.Direction direction,
+                                      Long after, int offset, int size) {
+        long from = after != null && direction.isAscending() ? after : Long.MIN_VALUE;
+        long to = after != null && !direction.isAscending() ? after : Long.MAX_VALUE;
+        Pageable limit = PageRequest.of(0, offset + size, direction, "id");
+
+        SortedSet<Long> ids = new TreeSet<>(direction.isAscending()
+                ? Comparator.<Long>naturalOrder() : Comparator.<Long>reverseOrder());
+        ids.addAll(userRepository.findIdsByEmailPrefix(prefix, from, to, gender, country, limit));
+        ids.addAll(userRepository.findIdsByLastNamePrefix(prefix, from, to, gender, country, limit));
+        List<Long> page = ids.stream().skip(offset).limit(size).toList();
+        if (page.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllWithRolesByIdIn(page).forEach(user -> users.put(user.getId(), user));
+        return page.stream().map(users::get).filter(Objects::nonNull).toList();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<UserSuggestionDto> autocomplete(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, autocompleteMaxLimit));
+        String prefix = prefixPattern(query.strip());
+        Pageable top = PageRequest.ofSize(size);
+
+        // Email matches first, then last name matches not already listed.
+        Map<Long, UserSuggestion> suggestions = new LinkedHashMap<>();
+        userRepository.suggestByEmail(prefix, top).forEach(s -> suggestions.putIfAbsent(s.id(), s));
+        if (suggestions.size() < size) {
+            userRepository.suggestByLastName(prefix, top).forEach(s -> suggestions.putIfAbsent(s.id(), s));
+        }
+        return suggestions.values().stream()
+                .limit(size)
+                .map(s -> new UserSuggestionDto(s.id(), display(s)))
+                .toList();
+    }
+
+    private static String display(UserSuggestion suggestion) {
+        StringJoiner display = new StringJoiner(" ");
+        if (suggestion.firstName() != null) {
+            display.add(suggestion.firstName());
+        }
+        if (suggestion.lastName() != null) {
+            display.add(suggestion.lastName());
+        }
+        return display.add("<" + suggestion.email() + ">").toString();
+    }
+
+    // Lower-cases the term, escapes LIKE wildcards with '!' and matches everything that starts with it.
+    static String prefixPattern(String term) {
+        StringBuilder pattern = new StringBuilder(term.length() + 2);
+        for (char c : term.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '!' || c == '%' || c == '_') {
+                pattern.append('!');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
     @Transactional(readOnly = true)
     @Override
     public CreateUserResponseDto findUser(Long id) {
@@ -92,8 +323,12 @@ public class UserServiceImpl implements UserService {
     @Override
     public CreateUserResponseDto updateUser(Long id, UpdateUserDto updateUserDto) {
         User user = existsUser(id);
+        String previousEmail = user.getEmail();
         updateUserFields(user, updateUserDto);
         User updatedUser = userRepository.save(user);
+        userDetailsCache.evictAfterCommit(List.of(previousEmail, updatedUser.getEmail()));
+        registeredEmailFilter.register(updatedUser.getEmail());
+        userSearchIndex.indexAfterCommit(updatedUser);
 
         return userMapper.toResponse(updatedUser);
     }
@@ -105,17 +340,47 @@ public class UserServiceImpl implements UserService {
         user.setDeleted(true);
         user.setDeletedAt(new Date());
         userRepository.save(user);
+        userDetailsCache.evictAfterCommit(user.getEmail());
+        tokenRevocationService.revokeSubject(user.getEmail());
+        refreshTokenService.revokeAll(user.getEmail());
+        userSearchIndex.removeAfterCommit(user.getId());
         return DeleteResponseDto.builder().deletedCount(1).acknowledged(true).build();
     }
 
     @Transactional
     @Override
-    public PaginatedResponseDto addRoleToManyUsers(RoleToUsersDto roleToUsersDto) {
+    public RoleAssignmentResponseDto addRoleToManyUsers(RoleToUsersDto roleToUsersDto) {
         Role role = existsRole(roleToUsersDto.getRoleId());
-        List<User> users = getExistingUsers(Arrays.asList(roleToUsersDto.getUsersId()));
-        addRoleToList(users, role);
-        return updateRoleInUsers(users);
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(roleToUsersDto.getUsersId())));
+        ids.removeIf(Objects::isNull);
+
+        // Set-based per chunk of ids: no user is loaded, and users that already have the role are skipped.
+        int matched = 0;
+        int inserted = 0;
+        for (int from = 0; from < ids.size(); from += ROLE_ASSIGNMENT_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ROLE_ASSIGNMENT_CHUNK, ids.size()));
+            List<String> emails = userRepository.findActiveEmailsByIdIn(chunk);
+            if (emails.isEmpty()) {
+                continue;
+            }
+            matched += emails.size();
+            inserted += userRepository.addRoleToActiveUsers(role.getId(), chunk);
+            userDetailsCache.evictAfterCommit(emails);
+        }
+        if (matched == 0) {
+            throw new UserNotFoundException("The users do not exist");
+        }
+
+        return RoleAssignmentResponseDto.builder()
+                .roleId(role.getId())
+                .requested(ids.size())
+                .inserted(inserted)
+                .alreadyPresent(matched - inserted)
+                .notFound(ids.size() - matched)
+                .build();
     }
+
+    @Transactional
     @Override
     public PaginatedResponseDto removeRoleToManyUsers(RoleToUsersDto roleToUsersDto) {
         Role role = existsRole(roleToUsersDto.getRoleId());
@@ -136,6 +401,7 @@ public class UserServiceImpl implements UserService {
     private PaginatedResponseDto updateRoleInUsers(List<User> users) {
         try {
             userRepository.saveAll(users);
+            userDetailsCache.evictAfterCommit(users.stream().map(User::getEmail).toList());
 
             List<CreateUserResponseDto> response = users.stream().map(userMapper::toResponse).toList();
             return userMapper.toPaginatedResponse(response, users.size(), 0, users.size(), new Date());
@@ -161,12 +427,6 @@ public class UserServiceImpl implements UserService {
         return users;
     }
 
-    private void addRoleToList(List<User> users, Role role) {
-        users.forEach(user -> {
-            user.getRoles().add(role);
-        });
-    }
-
     private void removeRoleToList(List<User> users, Role role) {
         users.forEach(user -> {
             user.getRoles().remove(role);
@@ -0,0 +1,37 @@
+package com.jmarqb.ms.auth.app.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Statements for reading large results row by row, so the driver never holds the whole result in memory.
+ */
+public final class StreamingQueries {
+
+    private StreamingQueries() {
+    }
+
+    /**
+     * A forward-only, read-only statement that fetches {@code fetchSize} rows per round trip where the driver
+     * supports it.
+     */
+    public static PreparedStatement prepare(Connection connection, String sql, int fetchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize(connection, fetchSize));
+        return statement;
+    }
+
+    // MySQL Connector/J buffers the whole result unless it streams row by row (MIN_VALUE) or the URL enables
+    // server-side cursors, in which case the fetch size applies.
+    private static int fetchSize(Connection connection, int fetchSize) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        boolean mysql = "MySQL".equals(product) || "MariaDB".equals(product);
+        if (mysql && !connection.getMetaData().getURL().contains("useCursorFetch=true")) {
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jmarqb.ms.auth.app;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object lock = new Object();
+
+    private VirtualThreadPinningMonitor monitor;
+
+    @AfterEach
+    void tearDown() {
+        monitor.destroy();
+    }
+
+    @Test
+    void reportsBlockingInsideSynchronized() throws Exception {
+        monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        monitor.bindTo(registry);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (monitor.pinnedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+            Thread.sleep(100);
+        }
+
+        assertTrue(monitor.pinnedCount() > 0);
+        assertTrue(registry.get("jvm.threads.virtual.pinned").functionTimer().count() > 0);
+    }
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jmarqb.ms.auth.app.benchmarks;
+
+import com.jmarqb.ms.auth.app.security.JwtKeyRing;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of the previous verification path (a fresh parser and a full
+ * signature check in extractUsername, isTokenValid and isTokenExpired) with the single-pass
+ * {@link JwtService#verify(String)}. See the Benchmarks section of the Readme to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private JwtKeyRing keyRing;
+    private JwtService jwtService;
+    private String token;
+    private String username;
+
+    @Setup
+    public void setup() throws Exception {
+        keyRing = new JwtKeyRing("", "PKCS12", "", "");
+        jwtService = new JwtService(keyRing, Duration.ofMinutes(15), null, JwtService.AuthoritiesFormat.NAMES);
+        username = "bench@example.com";
+        token = jwtService.generateToken(new User(username, "password",
+                List.of(new SimpleGrantedAuthority("USER"), new SimpleGrantedAuthority("ADMIN"))));
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String subject = Jwts.parser().keyLocator(keyRing).build()
+                .parseSignedClaims(token).getPayload().getSubject();
+        String again = Jwts.parser().keyLocator(keyRing).build()
+                .parseSignedClaims(token).getPayload().getSubject();
+        Date expiration = Jwts.parser().keyLocator(keyRing).build()
+                .parseSignedClaims(token).getPayload().getExpiration();
+        return subject.equals(username) && again.equals(username) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean singlePassVerify() {
+        TokenClaims claims = jwtService.verify(token);
+        return claims.subject().equals(username) && !claims.isExpired();
+    }
+}
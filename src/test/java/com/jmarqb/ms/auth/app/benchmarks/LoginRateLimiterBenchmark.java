@@ -0,0 +1,53 @@
+package com.jmarqb.ms.auth.app.benchmarks;
+
+import com.jmarqb.ms.auth.app.security.LoginRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LoginRateLimiter#acquire(String, String)} from eight threads, both with every thread hitting the
+ * same client address and email and with attempts spread over many keys. The limits are large enough that nothing
+ * is rejected, so only the bucket lookup and the compare-and-set are measured. See the Benchmarks section of the
+ * Readme to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoginRateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private LoginRateLimiter limiter;
+    private String[] emails;
+    private String[] addresses;
+
+    @Setup
+    public void setup() {
+        limiter = new LoginRateLimiter(true, Integer.MAX_VALUE, Duration.ofMinutes(1),
+                Integer.MAX_VALUE, Duration.ofMinutes(1), 100_000);
+        emails = new String[KEYS];
+        addresses = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            emails[i] = "user" + i + "@example.com";
+            addresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public void sameKey() {
+        limiter.acquire(emails[0], addresses[0]);
+    }
+
+    @Benchmark
+    public void spreadKeys() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        limiter.acquire(emails[i], addresses[i]);
+    }
+}
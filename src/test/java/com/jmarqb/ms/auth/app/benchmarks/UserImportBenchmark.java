@@ -0,0 +1,114 @@
+package com.jmarqb.ms.auth.app.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.MsAuthApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per user to create {@value #USERS} users with one {@code POST /api/users/import} versus one
+ * {@code POST /api/auth/signup} each, at two BCrypt strengths. Every invocation uses fresh emails and phones. The
+ * service uses the test profile (in-memory H2) unless datasource properties are passed to the forked JVM. See the
+ * Benchmarks section of the Readme to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserImportBenchmark {
+
+    private static final int USERS = 1000;
+
+    @Param({"4", "8"})
+    public int bcryptStrength;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient http;
+    private String baseUri;
+    private String token;
+    private int batch;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(MsAuthApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "ms-auth.password-hashing.bcrypt.strength=" + bcryptStrength,
+                        "logging.level.root=off")
+                .run();
+        baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        http = HttpClient.newHttpClient();
+        HttpRequest login = HttpRequest.newBuilder(URI.create(baseUri + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"testadmin@example.com\",\"password\":\"password\"}"))
+                .build();
+        token = new ObjectMapper()
+                .readTree(http.send(login, HttpResponse.BodyHandlers.ofString()).body())
+                .get("token").asText();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        http.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public String bulkImport() throws Exception {
+        int first = nextBatch();
+        StringBuilder body = new StringBuilder(USERS * 200);
+        for (int i = first; i < first + USERS; i++) {
+            body.append(user(i)).append('\n');
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + "/api/users/import?format=NDJSON"))
+                .header("Content-Type", "application/x-ndjson")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || !response.body().contains("\"imported\":" + USERS)) {
+            throw new IllegalStateException("Import answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public int signups() throws Exception {
+        int first = nextBatch();
+        for (int i = first; i < first + USERS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + "/api/auth/signup"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(user(i)))
+                    .build();
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 201) {
+                throw new IllegalStateException("Signup answered " + status);
+            }
+        }
+        return USERS;
+    }
+
+    private int nextBatch() {
+        return batch++ * USERS;
+    }
+
+    private static String user(int n) {
+        return "{\"firstName\":\"Bench\",\"lastName\":\"User\",\"email\":\"bench" + n + "@example.com\","
+                + "\"password\":\"password\",\"phone\":\"+57" + String.format("%08d", n) + "\",\"age\":30,"
+                + "\"gender\":\"MALE\",\"country\":\"Colombia\"}";
+    }
+}
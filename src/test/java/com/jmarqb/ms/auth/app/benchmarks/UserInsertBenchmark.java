@@ -0,0 +1,91 @@
+package com.jmarqb.ms.auth.app.benchmarks;
+
+import com.jmarqb.ms.auth.app.MsAuthApplication;
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per user to insert {@value #USERS} users with their role through JPA, {@value #CHUNK} per transaction, with
+ * auto-increment ids (the previous mapping, restored by {@code benchmarks/identity-ids.xml}) versus pooled ids and
+ * JDBC batching. The service uses the test profile (in-memory H2) unless datasource properties are passed to the
+ * forked JVM; the gap grows with the round-trip time to the database. See the Benchmarks section of the Readme to run
+ * it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserInsertBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int CHUNK = 1_000;
+
+    @Param({"identity", "pooled"})
+    public String ids;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private Role role;
+    private int batch;
+
+    @Setup
+    public void setup() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MsAuthApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "ms-auth.user-search.index.enabled=false",
+                        "logging.level.root=off");
+        if (ids.equals("identity")) {
+            builder.properties("spring.jpa.mapping-resources=benchmarks/identity-ids.xml");
+        }
+        context = builder.run();
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        role = context.getBean(RoleRepository.class).findByName("USER").orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public int insert() {
+        int first = batch++ * USERS;
+        for (int chunk = first; chunk < first + USERS; chunk += CHUNK) {
+            List<User> users = new ArrayList<>(CHUNK);
+            for (int i = chunk; i < chunk + CHUNK; i++) {
+                users.add(User.builder()
+                        .firstName("Bench")
+                        .lastName("User")
+                        .email("insert" + i + "@example.com")
+                        .password("{noop}password")
+                        .phone("+57" + String.format("%08d", i))
+                        .age(30)
+                        .gender(Gender.MALE)
+                        .country("Colombia")
+                        .roles(new ArrayList<>(List.of(role)))
+                        .build());
+            }
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAll(users));
+        }
+        return USERS;
+    }
+}
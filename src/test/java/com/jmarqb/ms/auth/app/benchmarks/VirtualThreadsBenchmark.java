@@ -0,0 +1,111 @@
+package com.jmarqb.ms.auth.app.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmarqb.ms.auth.app.MsAuthApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code POST /api/users/search} and {@code POST /api/auth/login} with {@value #CONCURRENCY}
+ * concurrent requests, running the whole service on Tomcat platform threads and on virtual threads. The service
+ * uses the test profile (in-memory H2) unless datasource properties are passed to the forked JVM. See the Benchmarks
+ * section of the Readme to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    private static final int CONCURRENCY = 400;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient http;
+    private HttpRequest search;
+    private HttpRequest login;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(MsAuthApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                        "ms-auth.login-rate-limit.enabled=false",
+                        // Cheap hashes keep login measuring request handling rather than BCrypt on a few cores.
+                        "ms-auth.password-hashing.bcrypt.strength=4",
+                        "ms-auth.password-hashing.queue-capacity=" + CONCURRENCY,
+                        "ms-auth.password-hashing.max-queue-wait=PT1M",
+                        "logging.level.root=off")
+                .run();
+        String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        http = HttpClient.newBuilder().executor(clientExecutor).build();
+        login = HttpRequest.newBuilder(URI.create(baseUri + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"testadmin@example.com\",\"password\":\"password\"}"))
+                .build();
+        String token = new ObjectMapper()
+                .readTree(http.send(login, HttpResponse.BodyHandlers.ofString()).body())
+                .get("token").asText();
+        search = HttpRequest.newBuilder(URI.create(baseUri + "/api/users/search"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"page\":0,\"size\":20,\"sort\":\"ASC\"}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        clientExecutor.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int search() {
+        return sendConcurrently(search);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int login() {
+        return sendConcurrently(login);
+    }
+
+    private int sendConcurrently(HttpRequest request) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            responses.add(http.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException(request.uri().getPath() + " answered " + status);
+            }
+            ok++;
+        }
+        return ok;
+    }
+}
@@ -2,23 +2,35 @@ package com.jmarqb.ms.auth.app.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.IntrospectionRequestDto;
 import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
 import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CurrentUserResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.IntrospectionResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.TokenIntrospectionDto;
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
 import com.jmarqb.ms.auth.app.repositories.UserRepository;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.RegisteredEmailFilter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -43,6 +55,9 @@ class AuthControllerE2ETest {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
+
     private String token;
 
     @LocalServerPort
@@ -83,6 +98,32 @@ class AuthControllerE2ETest {
         assertTrue(jwtService.isTokenValid(response.getBody().getToken(), user.get()));
     }
 
+    @Test
+    void loginRehashesOutdatedPassword() {
+        userRepository.save(User.builder()
+                .firstName("legacy")
+                .lastName("legacy")
+                .email("legacy@example.com")
+                .age(30)
+                .password(new BCryptPasswordEncoder(4).encode("password"))
+                .phone("+1555000222")
+                .gender(Gender.FEMALE)
+                .country("Testland")
+                .roles(new ArrayList<>())
+                .build());
+        // Inserted behind the service's back, as another instance would.
+        registeredEmailFilter.catchUp();
+
+        ResponseEntity<AuthResponseDto> response = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("legacy@example.com", "password"), AuthResponseDto.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        String stored = userRepository.findByEmail("legacy@example.com").orElseThrow().getPassword();
+        assertTrue(stored.startsWith("{bcrypt}$2a$10$"));
+        assertEquals(200, client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("legacy@example.com", "password"), AuthResponseDto.class).getStatusCode().value());
+    }
+
     @Test
     void loginBadCredentials(){
         LoginDto loginDto = new LoginDto("testadmin@example.com", "badpassword");
@@ -91,6 +132,132 @@ class AuthControllerE2ETest {
         assertEquals(401, response.getStatusCode().value());
     }
 
+    @Test
+    void loginUnknownEmail() {
+        assertFalse(registeredEmailFilter.mightBeRegistered("nobody@example.com"));
+
+        ResponseEntity<Error> response = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("nobody@example.com", "password"), Error.class);
+
+        assertEquals(401, response.getStatusCode().value());
+        assertEquals("Invalid email or password", response.getBody().getMessage());
+    }
+
+    @Test
+    void loginThrottledPerEmail() {
+        LoginDto loginDto = new LoginDto("throttled@example.com", "badpassword");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(401, client.postForEntity(createURI("/api/auth/login"), loginDto, Error.class)
+                    .getStatusCode().value());
+        }
+
+        // The default client transparently retries a 429 once Retry-After has elapsed.
+        TestRestTemplate noRetryClient = new TestRestTemplate(new RestTemplateBuilder()
+                .requestFactory(JdkClientHttpRequestFactory.class));
+        ResponseEntity<Error> response = noRetryClient.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("Throttled@example.com", "password"), Error.class);
+
+        assertEquals(429, response.getStatusCode().value());
+        int retryAfter = Integer.parseInt(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter >= 1 && retryAfter <= 6);
+    }
+
+    @Test
+    void me() {
+        ResponseEntity<CurrentUserResponseDto> response =
+                client.getForEntity(createURI("/api/auth/me"), CurrentUserResponseDto.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertNotNull(response.getBody());
+        assertEquals("testadmin@example.com", response.getBody().getEmail());
+        assertEquals(List.of("ADMIN"), response.getBody().getAuthorities());
+        assertNotNull(response.getBody().getExpiresAt());
+    }
+
+    @Test
+    void introspect() {
+        IntrospectionRequestDto request = new IntrospectionRequestDto(List.of(token, "not-a-token", token));
+
+        ResponseEntity<IntrospectionResponseDto> response =
+                client.postForEntity(createURI("/api/auth/introspect"), request, IntrospectionResponseDto.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        List<TokenIntrospectionDto> results = response.getBody().getResults();
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isActive());
+        assertEquals("testadmin@example.com", results.get(0).getSub());
+        assertEquals(List.of("ADMIN"), results.get(0).getAuthorities());
+        assertNotNull(results.get(0).getExp());
+        assertFalse(results.get(1).isActive());
+        assertNull(results.get(1).getSub());
+        assertEquals(results.get(0), results.get(2));
+    }
+
+    @Test
+    void introspectEmptyBatch() {
+        ResponseEntity<Error> response = client.postForEntity(createURI("/api/auth/introspect"),
+                new IntrospectionRequestDto(List.of()), Error.class);
+
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void invalidTokenIsRejectedBeforeTheController() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth("not-a-token");
+
+        ResponseEntity<Error> response = new TestRestTemplate().exchange(createURI("/api/auth/login"),
+                HttpMethod.POST, new HttpEntity<>(new LoginDto("testadmin@example.com", "password"), headers),
+                Error.class);
+
+        assertEquals(401, response.getStatusCode().value());
+        assertEquals("Unauthorized", response.getBody().getError());
+        assertEquals("Invalid token", response.getBody().getMessage());
+        assertNotNull(response.getBody().getTimestamp());
+    }
+
+    @Test
+    void verify() {
+        ResponseEntity<TokenIntrospectionDto> response =
+                client.getForEntity(createURI("/api/auth/verify"), TokenIntrospectionDto.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+        assertTrue(response.getBody().isActive());
+        assertEquals("testadmin@example.com", response.getBody().getSub());
+        assertEquals(List.of("ADMIN"), response.getBody().getAuthorities());
+    }
+
+    @Test
+    void verifyWithoutToken() {
+        ResponseEntity<String> response = new TestRestTemplate().postForEntity(createURI("/api/auth/verify"),
+                null, String.class);
+
+        assertEquals(401, response.getStatusCode().value());
+        assertEquals("{\"active\":false}", response.getBody());
+    }
+
+    @Test
+    void verifyInvalidToken() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth("not-a-token");
+
+        ResponseEntity<TokenIntrospectionDto> response = new TestRestTemplate().exchange(
+                createURI("/api/auth/verify"), HttpMethod.GET, new HttpEntity<>(headers), TokenIntrospectionDto.class);
+
+        assertEquals(401, response.getStatusCode().value());
+        assertFalse(response.getBody().isActive());
+    }
+
+    @Test
+    void verifyRejectsOtherMethods() {
+        ResponseEntity<String> response = client.exchange(createURI("/api/auth/verify"), HttpMethod.DELETE,
+                null, String.class);
+
+        assertEquals(405, response.getStatusCode().value());
+        assertEquals("GET, POST", response.getHeaders().getFirst(HttpHeaders.ALLOW));
+    }
+
     private String createURI(String uri) {
         return "http://localhost:" + port + uri;
     }
@@ -0,0 +1,92 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.SearchBodyDto;
+import com.jmarqb.ms.auth.app.dtos.response.CurrentUserResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.jmarqb.ms.auth.app.data.Data.createSearchBodyDto;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "ms-auth.jwt.stateless=true")
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+class AuthControllerStatelessE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @SpyBean
+    private JpaUserDetailsService userDetailsService;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void setup() throws JsonProcessingException {
+        // The user does not exist in the database: access can only come from the token claims.
+        User user = new User("stateless@example.com", "password", List.of(new SimpleGrantedAuthority("USER")));
+        String token = jwtService.generateToken(user);
+        client.getRestTemplate().getInterceptors().add((request, body, execution) -> {
+            request.getHeaders().set("Authorization", "Bearer " + token);
+            return execution.execute(request, body);
+        });
+    }
+
+    @Test
+    void me() {
+        ResponseEntity<CurrentUserResponseDto> response =
+                client.getForEntity(createURI("/api/auth/me"), CurrentUserResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("stateless@example.com", response.getBody().getEmail());
+        assertEquals(List.of("USER"), response.getBody().getAuthorities());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void protectedEndpointUsesTokenAuthorities() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 10, "ASC");
+
+        ResponseEntity<PaginatedResponseDto> search = client.postForEntity(createURI("/api/users/search"),
+                searchBodyDto, PaginatedResponseDto.class);
+        ResponseEntity<String> roles = client.getForEntity(createURI("/api/roles/1"), String.class);
+
+        assertEquals(HttpStatus.OK, search.getStatusCode());
+        assertTrue(roles.getStatusCode().is4xxClientError());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
@@ -3,10 +3,13 @@ package com.jmarqb.ms.auth.app.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
 import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
 import com.jmarqb.ms.auth.app.services.impl.AuthService;
 import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
+import com.jmarqb.ms.auth.app.services.impl.TokenRevocationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -37,6 +40,15 @@ class AuthControllerTest {
     @MockBean
     JpaUserDetailsService jpaUserDetailsService;
 
+    @MockBean
+    TokenAuthenticationCache tokenAuthenticationCache;
+
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    TokenIntrospectionService tokenIntrospectionService;
+
 
     @Test
     void login() throws Exception {
@@ -48,7 +60,7 @@ class AuthControllerTest {
         loginDto.setEmail("testuser@example.com");
         loginDto.setPassword("testpassword");
 
-        when(authService.login(any(LoginDto.class))).thenReturn(responseDto);
+        when(authService.login(any(LoginDto.class), any())).thenReturn(responseDto);
 
 
         mockMvc.perform(post("/api/auth/login")
@@ -60,6 +72,6 @@ class AuthControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.token").value(responseDto.getToken()));
 
-        verify(authService).login(any(LoginDto.class));
+        verify(authService).login(any(LoginDto.class), any());
     }
 }
\ No newline at end of file
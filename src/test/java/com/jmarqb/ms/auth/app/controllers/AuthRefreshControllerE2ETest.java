@@ -0,0 +1,100 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RefreshTokenDto;
+import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.entities.Error;
+import com.jmarqb.ms.auth.app.entities.RefreshToken;
+import com.jmarqb.ms.auth.app.repositories.RefreshTokenRepository;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+class AuthRefreshControllerE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void refreshRotatesTokens() {
+        AuthResponseDto login = login();
+        assertNotNull(login.getRefreshToken());
+
+        ResponseEntity<AuthResponseDto> response = refresh(login.getRefreshToken(), AuthResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("testadmin@example.com", jwtService.verify(response.getBody().getToken()).subject());
+        assertNotEquals(login.getRefreshToken(), response.getBody().getRefreshToken());
+    }
+
+    @Test
+    void refreshTokensAreStoredHashed() {
+        AuthResponseDto login = login();
+
+        List<RefreshToken> stored = refreshTokenRepository.findAll();
+
+        assertTrue(stored.stream().noneMatch(token -> token.getTokenHash().equals(login.getRefreshToken())));
+    }
+
+    @Test
+    void reusedRefreshTokenRevokesFamily() {
+        AuthResponseDto login = login();
+        String next = refresh(login.getRefreshToken(), AuthResponseDto.class).getBody().getRefreshToken();
+
+        ResponseEntity<Error> reused = refresh(login.getRefreshToken(), Error.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, reused.getStatusCode());
+        assertEquals("Refresh token reuse detected", reused.getBody().getMessage());
+
+        ResponseEntity<Error> successor = refresh(next, Error.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, successor.getStatusCode());
+    }
+
+    @Test
+    void unknownRefreshToken() {
+        ResponseEntity<Error> response = refresh("not-a-refresh-token", Error.class);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertEquals("Invalid refresh token", response.getBody().getMessage());
+    }
+
+    private AuthResponseDto login() {
+        return client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("testadmin@example.com", "password"), AuthResponseDto.class).getBody();
+    }
+
+    private <T> ResponseEntity<T> refresh(String refreshToken, Class<T> type) {
+        return client.postForEntity(createURI("/api/auth/refresh"), new RefreshTokenDto(refreshToken), type);
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
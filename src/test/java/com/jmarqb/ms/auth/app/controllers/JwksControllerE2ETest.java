@@ -0,0 +1,53 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+class JwksControllerE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void jwks() {
+        ResponseEntity<Map> response = client.getForEntity(createURI("/.well-known/jwks.json"), Map.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("max-age=3600, public", response.getHeaders().getCacheControl());
+
+        List<Map<String, String>> keys = (List<Map<String, String>>) response.getBody().get("keys");
+        assertEquals(2, keys.size());
+        assertEquals(List.of("key-2025", "key-2026"), keys.stream().map(key -> key.get("kid")).sorted().toList());
+        keys.forEach(key -> {
+            assertEquals("sig", key.get("use"));
+            assertNull(key.get("d"));
+        });
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
@@ -6,6 +6,7 @@ import com.jmarqb.ms.auth.app.dtos.request.*;
 import com.jmarqb.ms.auth.app.dtos.response.CreateRoleResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.RoleAssignmentResponseDto;
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.entities.User;
 import com.jmarqb.ms.auth.app.repositories.UserRepository;
@@ -135,6 +136,76 @@ public class RoleControllerE2ETest {
         assertEquals(1, body.getTotal());
     }
 
+    @Test
+    @Order(3)
+    void searchWithCursor() {
+        for (String sort : List.of("ASC", "DESC")) {
+            List<?> expected = client.postForEntity(createURI("/api/roles/search"),
+                    createSearchBodyDto(null, 0, 100, sort), PaginatedResponseDto.class).getBody().getData();
+            assertTrue(expected.size() > 1);
+
+            List<Object> walked = new ArrayList<>();
+            SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 1, sort);
+            do {
+                PaginatedResponseDto body = client.postForEntity(createURI("/api/roles/search"),
+                        searchBodyDto, PaginatedResponseDto.class).getBody();
+                walked.addAll(body.getData());
+                searchBodyDto.setCursor(body.getNextCursor());
+            } while (searchBodyDto.getCursor() != null);
+
+            assertEquals(expected, walked);
+        }
+    }
+
+    @Test
+    @Order(3)
+    void searchTotals() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("ad", 0, 10, "ASC");
+
+        searchBodyDto.setTotalStrategy("EXACT");
+        PaginatedResponseDto exact = client.postForEntity(createURI("/api/roles/search"),
+                searchBodyDto, PaginatedResponseDto.class).getBody();
+        searchBodyDto.setTotalStrategy("CACHED");
+        PaginatedResponseDto cached = client.postForEntity(createURI("/api/roles/search"),
+                searchBodyDto, PaginatedResponseDto.class).getBody();
+        PaginatedResponseDto estimated = client.postForEntity(createURI("/api/roles/search"),
+                SearchBodyDto.builder().size(1).sort("ASC").totalStrategy("ESTIMATED").build(),
+                PaginatedResponseDto.class).getBody();
+
+        assertEquals(1, exact.getTotal());
+        assertEquals("EXACT", exact.getTotalStrategy());
+        assertEquals(1, cached.getTotal());
+        assertEquals("CACHED", cached.getTotalStrategy());
+        assertEquals("ESTIMATED", estimated.getTotalStrategy());
+        assertTrue(estimated.getTotal() > 1);
+        assertEquals(1, estimated.getData().size());
+    }
+
+    @Test
+    @Order(3)
+    void searchWithUnknownTotalStrategy() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 1, "ASC");
+        searchBodyDto.setTotalStrategy("GUESS");
+
+        ResponseEntity<Error> response = client.postForEntity(createURI("/api/roles/search"),
+                searchBodyDto, Error.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @Order(3)
+    void searchWithInvalidCursor() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 1, "ASC");
+        searchBodyDto.setCursor("not a cursor");
+
+        ResponseEntity<Error> response = client.postForEntity(createURI("/api/roles/search"),
+                searchBodyDto, Error.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Invalid cursor", response.getBody().getMessage());
+    }
+
     @Test
     @Order(4)
     void findRole() {
@@ -251,40 +322,46 @@ public class RoleControllerE2ETest {
         roleToUsersDto.setUsersId(new Long[]{1L});
 
 
-        ResponseEntity<PaginatedResponseDto> response = client.postForEntity(createURI("/api/roles/add/to-many-users"), roleToUsersDto,
-                PaginatedResponseDto.class);
+        ResponseEntity<RoleAssignmentResponseDto> response = client.postForEntity(createURI("/api/roles/add/to-many-users"), roleToUsersDto,
+                RoleAssignmentResponseDto.class);
 
 
-        PaginatedResponseDto body = response.getBody();
+        RoleAssignmentResponseDto body = response.getBody();
 
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(body);
         User user = userRepository.findByEmailWithRoles("testadmin@example.com").orElseThrow();
         assertEquals(3, user.getRoles().size());
-        assertEquals(0, body.getPage());
-        assertEquals(1, body.getSize());
-        assertEquals(1, body.getTotal());
+        assertEquals(4L, body.getRoleId());
+        assertEquals(1, body.getRequested());
+        assertEquals(1, body.getInserted());
+        assertEquals(0, body.getAlreadyPresent());
+        assertEquals(0, body.getNotFound());
     }
     @Test
     @Order(10)
-    void addRoleToManyUsersThrowDuplicateKeyException() {
+    void addRoleToManyUsersIsIdempotent() {
         CreateRoleResponseDto role = getRoleUser(4L);
 
         RoleToUsersDto roleToUsersDto = new RoleToUsersDto();
         roleToUsersDto.setRoleId(role.getId());
-        roleToUsersDto.setUsersId(new Long[]{1L});
+        roleToUsersDto.setUsersId(new Long[]{1L, 1L, 999L});
 
 
-        ResponseEntity<Error> response = client.postForEntity(createURI("/api/roles/add/to-many-users"), roleToUsersDto,
-                Error.class);
+        ResponseEntity<RoleAssignmentResponseDto> response = client.postForEntity(createURI("/api/roles/add/to-many-users"), roleToUsersDto,
+                RoleAssignmentResponseDto.class);
 
 
-        Error body = response.getBody();
+        RoleAssignmentResponseDto body = response.getBody();
 
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(body);
-
-        assertEquals(HttpStatus.BAD_REQUEST.value(), body.getStatus());
-        assertEquals("Duplicate Key", body.getError());
-        assertEquals("Could not execute statement: Duplicate key or Duplicate entry", body.getMessage());
+        assertEquals(2, body.getRequested());
+        assertEquals(0, body.getInserted());
+        assertEquals(1, body.getAlreadyPresent());
+        assertEquals(1, body.getNotFound());
+        User user = userRepository.findByEmailWithRoles("testadmin@example.com").orElseThrow();
+        assertEquals(3, user.getRoles().size());
     }
 
     @Test
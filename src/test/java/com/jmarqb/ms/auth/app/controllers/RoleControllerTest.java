@@ -4,10 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jmarqb.ms.auth.app.dtos.request.*;
 import com.jmarqb.ms.auth.app.dtos.response.*;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
 import com.jmarqb.ms.auth.app.services.RoleService;
 import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
+import com.jmarqb.ms.auth.app.services.impl.TokenRevocationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +48,15 @@ class RoleControllerTest {
     @MockBean
     private JpaUserDetailsService jpaUserDetailsService;
 
+    @MockBean
+    private TokenAuthenticationCache tokenAuthenticationCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    private TokenIntrospectionService tokenIntrospectionService;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
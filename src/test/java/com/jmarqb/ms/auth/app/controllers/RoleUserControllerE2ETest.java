@@ -0,0 +1,107 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.CreateUserDto;
+import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RoleToUsersDto;
+import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.RoleAssignmentResponseDto;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.jmarqb.ms.auth.app.data.Data.createUserDto;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpMethod.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+class RoleUserControllerE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TestDataInitializer testDataInitializer;
+
+    @LocalServerPort
+    private int port;
+
+    private String adminToken;
+
+    @BeforeEach
+    void setup() throws JsonProcessingException {
+        adminToken = jwtService.generateToken(new User("testadmin@example.com", "password",
+                List.of(new SimpleGrantedAuthority("ADMIN"))));
+    }
+
+    @Test
+    void demotedAdminLosesAccessOnNextRequest() {
+        CreateUserDto createUserDto = createUserDto();
+        createUserDto.setEmail("demoted@example.com");
+        createUserDto.setPhone("+1987654321");
+        ResponseEntity<CreateUserResponseDto> created = client.postForEntity(createURI("/api/auth/signup"),
+                createUserDto, CreateUserResponseDto.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        Long userId = created.getBody().getId();
+        Long adminRoleId = testDataInitializer.getAdminRole().getId();
+
+        RoleToUsersDto roleToUsersDto = new RoleToUsersDto(new Long[]{userId}, adminRoleId);
+        ResponseEntity<RoleAssignmentResponseDto> promoted = client.exchange(createURI("/api/roles/add/to-many-users"),
+                POST, new HttpEntity<>(roleToUsersDto, bearer(adminToken)), RoleAssignmentResponseDto.class);
+        assertEquals(HttpStatus.CREATED, promoted.getStatusCode());
+        assertEquals(1, promoted.getBody().getInserted());
+
+        String token = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("demoted@example.com", createUserDto.getPassword()), AuthResponseDto.class)
+                .getBody().getToken();
+
+        // Twice, so both the user details and the token authentication are served from cache.
+        assertEquals(HttpStatus.OK, getRole(adminRoleId, token).getStatusCode());
+        assertEquals(HttpStatus.OK, getRole(adminRoleId, token).getStatusCode());
+
+        ResponseEntity<PaginatedResponseDto> demoted = client.exchange(createURI("/api/roles/remove/to-many-users"),
+                DELETE, new HttpEntity<>(roleToUsersDto, bearer(adminToken)), PaginatedResponseDto.class);
+        assertEquals(HttpStatus.OK, demoted.getStatusCode());
+
+        assertNotEquals(HttpStatus.OK, getRole(adminRoleId, token).getStatusCode());
+    }
+
+    private ResponseEntity<String> getRole(Long id, String token) {
+        return client.exchange(createURI("/api/roles/" + id), GET, new HttpEntity<>(bearer(token)), String.class);
+    }
+
+    private HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
@@ -0,0 +1,109 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.CreateUserDto;
+import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RefreshTokenDto;
+import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.jmarqb.ms.auth.app.data.Data.createUserDto;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpMethod.*;
+
+// Stateless mode, so only the revocation list can reject a validly signed token.
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "ms-auth.jwt.stateless=true")
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+class TokenRevocationE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void logoutRevokesAccessAndRefreshTokens() {
+        AuthResponseDto login = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("testadmin@example.com", "password"), AuthResponseDto.class).getBody();
+
+        // Twice, so the second request is served from the token authentication cache.
+        assertEquals(HttpStatus.OK, me(login.getToken()).getStatusCode());
+        assertEquals(HttpStatus.OK, me(login.getToken()).getStatusCode());
+
+        ResponseEntity<Void> logout = client.exchange(createURI("/api/auth/logout"), POST,
+                new HttpEntity<>(new RefreshTokenDto(login.getRefreshToken()), bearer(login.getToken())), Void.class);
+        assertEquals(HttpStatus.NO_CONTENT, logout.getStatusCode());
+
+        ResponseEntity<String> revoked = me(login.getToken());
+        assertEquals(HttpStatus.UNAUTHORIZED, revoked.getStatusCode());
+        assertTrue(revoked.getBody().contains("\"message\":\"Token has been revoked\""));
+        assertEquals(HttpStatus.UNAUTHORIZED, client.exchange(createURI("/api/auth/verify"), GET,
+                new HttpEntity<>(bearer(login.getToken())), String.class).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, client.postForEntity(createURI("/api/auth/refresh"),
+                new RefreshTokenDto(login.getRefreshToken()), String.class).getStatusCode());
+    }
+
+    @Test
+    void deletedUserLosesAccess() throws JsonProcessingException {
+        CreateUserDto createUserDto = createUserDto();
+        createUserDto.setEmail("revoked@example.com");
+        createUserDto.setPhone("+1555000111");
+        ResponseEntity<CreateUserResponseDto> created = client.postForEntity(createURI("/api/auth/signup"),
+                createUserDto, CreateUserResponseDto.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+
+        String token = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("revoked@example.com", createUserDto.getPassword()), AuthResponseDto.class)
+                .getBody().getToken();
+        assertEquals(HttpStatus.OK, me(token).getStatusCode());
+
+        String adminToken = jwtService.generateToken(new User("testadmin@example.com", "password",
+                List.of(new SimpleGrantedAuthority("ADMIN"))));
+        ResponseEntity<String> deleted = client.exchange(createURI("/api/users/" + created.getBody().getId()), DELETE,
+                new HttpEntity<>(bearer(adminToken)), String.class);
+        assertEquals(HttpStatus.OK, deleted.getStatusCode());
+
+        assertEquals(HttpStatus.UNAUTHORIZED, me(token).getStatusCode());
+        assertEquals(HttpStatus.OK, me(adminToken).getStatusCode());
+    }
+
+    private ResponseEntity<String> me(String token) {
+        return client.exchange(createURI("/api/auth/me"), GET, new HttpEntity<>(bearer(token)), String.class);
+    }
+
+    private HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
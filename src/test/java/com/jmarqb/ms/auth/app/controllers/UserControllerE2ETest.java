@@ -1,13 +1,16 @@
 package com.jmarqb.ms.auth.app.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
 import com.jmarqb.ms.auth.app.dtos.request.CreateUserDto;
 import com.jmarqb.ms.auth.app.dtos.request.SearchBodyDto;
 import com.jmarqb.ms.auth.app.dtos.request.UpdateUserDto;
+import com.jmarqb.ms.auth.app.dtos.request.UserExportDto;
 import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserSuggestionDto;
 import com.jmarqb.ms.auth.app.entities.Error;
 import com.jmarqb.ms.auth.app.repositories.UserRepository;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
@@ -19,6 +22,7 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -29,7 +33,9 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static com.jmarqb.ms.auth.app.data.Data.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -112,7 +118,121 @@ public class UserControllerE2ETest {
         assertEquals(1, body.getData().size());
         assertEquals(0, body.getPage());
         assertEquals(10, body.getSize());
-        assertEquals(1, body.getTotal());
+        assertEquals(1, body.getTotal());        assertNotNull(body.getTotalStrategy());
+    }
+
+    @Test
+    @Order(1)
+    void searchWithFilters() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("testuser", 0, 10, "ASC");
+        searchBodyDto.setGender("MALE");
+        searchBodyDto.setCountry("TESTLAND");
+
+        ResponseEntity<PaginatedResponseDto> response = client.postForEntity(createURI("/api/users/search"),
+                searchBodyDto, PaginatedResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getTotal());
+        assertEquals("testuser@example.com", ((Map<?, ?>) response.getBody().getData().get(0)).get("email"));
+
+        searchBodyDto.setGender("FEMALE");
+        response = client.postForEntity(createURI("/api/users/search"), searchBodyDto, PaginatedResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(0, response.getBody().getTotal());
+        assertTrue(response.getBody().getData().isEmpty());
+    }
+
+    @Test
+    @Order(1)
+    void searchWithPrefixMode() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("LASTNAME", 0, 10, "ASC");
+        searchBodyDto.setMode("PREFIX");
+
+        ResponseEntity<PaginatedResponseDto> response = client.postForEntity(createURI("/api/users/search"),
+                searchBodyDto, PaginatedResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getTotal());
+        assertEquals("testadmin@example.com", ((Map<?, ?>) response.getBody().getData().get(0)).get("email"));
+
+        // "admin" is inside the admin's email and names but starts none of them.
+        searchBodyDto.setSearch("admin");
+        response = client.postForEntity(createURI("/api/users/search"), searchBodyDto, PaginatedResponseDto.class);
+
+        assertNotNull(response.getBody());
+        assertEquals(0, response.getBody().getTotal());
+    }
+
+    @Test
+    @Order(1)
+    void autocomplete() {
+        ResponseEntity<UserSuggestionDto[]> response = client.getForEntity(
+                createURI("/api/users/autocomplete?q=TEST&limit=5"), UserSuggestionDto[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(List.of("firstNameAdmin lastNameAdmin <testadmin@example.com>", "Test User <testuser@example.com>"),
+                Arrays.stream(response.getBody()).map(UserSuggestionDto::getDisplay).toList());
+
+        response = client.getForEntity(createURI("/api/users/autocomplete?q={q}"), UserSuggestionDto[].class,
+                "te%");
+
+        assertNotNull(response.getBody());
+        assertEquals(0, response.getBody().length);
+    }
+
+    @Test
+    @Order(1)
+    void exportNdjson() throws Exception {
+        UserExportDto filters = UserExportDto.builder().gender("MALE").country("testland").sort("DESC").build();
+
+        ResponseEntity<String> response = client.postForEntity(createURI("/api/users/export"), filters, String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=\"users.ndjson\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        String[] lines = response.getBody().split("\n");
+        assertEquals(2, lines.length);
+        Map<?, ?> first = new ObjectMapper().readValue(lines[0], Map.class);
+        assertEquals("testuser@example.com", first.get("email"));
+        assertEquals("MALE", first.get("gender"));
+        assertEquals("testadmin@example.com", new ObjectMapper().readValue(lines[1], Map.class).get("email"));
+    }
+
+    @Test
+    @Order(1)
+    void exportCsv() {
+        UserExportDto filters = UserExportDto.builder().search("LASTNAME").mode("PREFIX").build();
+
+        ResponseEntity<String> response = client.postForEntity(createURI("/api/users/export?format=CSV"), filters,
+                String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertEquals("id,email,firstName,lastName,phone,age,gender,country\r\n" +
+                "1,testadmin@example.com,firstNameAdmin,lastNameAdmin,+1234567890,30,MALE,Testland\r\n",
+                response.getBody());
+    }
+
+    @Test
+    @Order(1)
+    void searchWithUnknownGender() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 10, "ASC");
+        searchBodyDto.setGender("OTHER");
+
+        ResponseEntity<Error> response = client.postForEntity(createURI("/api/users/search"), searchBodyDto,
+                Error.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("gender", response.getBody().getFieldErrors().get(0).getField());
+        assertEquals("Gender must be [MALE|FEMALE|NO_DIFFERENTIATION|NO_IDENTIFY_ANY]",
+                response.getBody().getFieldErrors().get(0).getMessage());
     }
 
     @Test
@@ -6,12 +6,20 @@ import com.jmarqb.ms.auth.app.dtos.request.UpdateUserDto;
 import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserSuggestionDto;
+import com.jmarqb.ms.auth.app.enums.FileFormat;
 import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.exceptions.UserImportUnavailableException;
 import com.jmarqb.ms.auth.app.exceptions.UserNotFoundException;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
 import com.jmarqb.ms.auth.app.services.UserService;
 import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
+import com.jmarqb.ms.auth.app.services.impl.TokenRevocationService;
+import com.jmarqb.ms.auth.app.services.impl.UserExportService;
+import com.jmarqb.ms.auth.app.services.impl.UserImportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +34,10 @@ import java.util.List;
 
 import static com.jmarqb.ms.auth.app.data.Data.createAdminUserResponseDto;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,12 +53,27 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserImportService userImportService;
+
     @MockBean
     private JwtService jwtService;
 
     @MockBean
     private JpaUserDetailsService jpaUserDetailsService;
 
+    @MockBean
+    private TokenAuthenticationCache tokenAuthenticationCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    private TokenIntrospectionService tokenIntrospectionService;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
@@ -88,6 +114,50 @@ class UserControllerTest {
         verify(userService).search(searchBodyDto);
     }
 
+    @Test
+    void autocomplete() throws Exception {
+        List<UserSuggestionDto> suggestions = List.of(new UserSuggestionDto(1L, "Admin Admin <admin@example.com>"));
+        when(userService.autocomplete("adm", 5)).thenReturn(suggestions);
+
+        mockMvc.perform(get("/api/users/autocomplete").param("q", "adm").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].display").value("Admin Admin <admin@example.com>"));
+
+        verify(userService).autocomplete("adm", 5);
+    }
+
+    @Test
+    @WithMockUser(username = "user@email.com", authorities = "USER")
+    void exportRequiresAdmin() throws Exception {
+        mockMvc.perform(post("/api/users/export").contentType("application/json;charset=UTF-8").content("{}"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(userExportService);
+    }
+
+    @Test
+    @WithMockUser(username = "user@email.com", authorities = "USER")
+    void importRequiresAdmin() throws Exception {
+        mockMvc.perform(post("/api/users/import").contentType("application/x-ndjson").content("{}"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(userImportService);
+    }
+
+    @Test
+    void importAnswers503WhenTooManyImportsRun() throws Exception {
+        when(userImportService.importUsers(any(), eq(FileFormat.NDJSON)))
+                .thenThrow(new UserImportUnavailableException("Too many imports in progress, try again later"));
+
+        mockMvc.perform(post("/api/users/import").contentType("application/x-ndjson").content("{}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.message").value("Too many imports in progress, try again later"));
+    }
+
     @Test
     void findUser() throws Exception {
         CreateUserResponseDto createUserResponseDto = createAdminUserResponseDto(1L);
@@ -0,0 +1,172 @@
+package com.jmarqb.ms.auth.app.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jmarqb.ms.auth.app.data.seed.TestDataInitializer;
+import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserImportResponseDto;
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.FileFormat;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
+import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.UserImportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "ms-auth.user-import.chunk-size=2")
+@Import({SpringSecurityConfig.class, TestDataInitializer.class})
+public class UserImportE2ETest {
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @LocalServerPort
+    private int port;
+
+    private String token;
+
+    @BeforeEach
+    void setup() throws JsonProcessingException {
+        token = jwtService.generateToken(new org.springframework.security.core.userdetails.User(
+                "testadmin@example.com", "password", List.of(new SimpleGrantedAuthority("ADMIN"))));
+    }
+
+    @Test
+    void importNdjson() {
+        String body = """
+                {"firstName":"Nora","lastName":"Lind","email":"nora@import.com","password":"secret1","phone":"+5711111111","age":31,"gender":"FEMALE","country":"Norway"}
+                {"firstName":"Omar","lastName":"Diaz","email":"omar@import.com","password":"secret2","phone":"+5711111112","age":40,"gender":"MALE","country":"Chile"}
+
+                {"firstName":"Dup","lastName":"Admin","email":"TESTADMIN@example.com","password":"secret3","phone":"+5711111113","age":25,"gender":"MALE","country":"Peru"}
+                {"firstName":"Kid","lastName":"Young","email":"kid@import.com","password":"secret4","phone":"+5711111114","age":12,"gender":"MALE","country":"Peru"}
+                {"firstName":"Nora","lastName":"Again","email":"nora@import.com","password":"secret5","phone":"+5711111115","age":22,"gender":"FEMALE","country":"Peru"}
+                {"firstName":
+                {"firstName":"Pia","lastName":"Berg","email":"pia@import.com","password":"secret6","phone":"+5711111116","age":28,"gender":"NO_IDENTIFY_ANY","country":"Sweden"}
+                """;
+
+        UserImportResponseDto report = importUsers("NDJSON", "application/x-ndjson", body);
+
+        assertEquals(7, report.getReceived());
+        assertEquals(3, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertFalse(report.isErrorsTruncated());
+        assertEquals(List.of(4, 5, 6, 7), report.getErrors().stream().map(UserImportResponseDto.RowError::getLine).toList());
+        assertEquals("email: the email already exists", report.getErrors().get(0).getMessage());
+        assertEquals("age: Age must be at least 18", report.getErrors().get(1).getMessage());
+        assertEquals("email: the email already exists", report.getErrors().get(2).getMessage());
+        assertTrue(report.getErrors().get(3).getMessage().startsWith("malformed JSON"));
+
+        User pia = userRepository.findByEmailWithRoles("pia@import.com").orElseThrow();
+        assertEquals(Gender.NO_IDENTIFY_ANY, pia.getGender());
+        assertEquals("berg", pia.getLastNameNormalized());
+        assertEquals(List.of("USER"), pia.getRoles().stream().map(Role::getName).toList());
+
+        ResponseEntity<AuthResponseDto> login = client.postForEntity(createURI("/api/auth/login"),
+                new LoginDto("omar@import.com", "secret2"), AuthResponseDto.class);
+        assertEquals(HttpStatus.OK, login.getStatusCode());
+    }
+
+    @Test
+    void importCsv() {
+        String body = "email,firstName,lastName,password,phone,age,gender,country\r\n" +
+                "csv1@import.com,\"Ana, Maria\",Lopez,secret1,+5722222221,30,FEMALE,Mexico\r\n" +
+                "csv2@import.com,Luis,Perez,secret2,+1234567890,30,MALE,Mexico\r\n" +
+                "csv3@import.com,Eva,Ruiz,secret3,+5722222223,old,FEMALE,Mexico\r\n";
+
+        UserImportResponseDto report = importUsers("CSV", "text/csv", body);
+
+        assertEquals(3, report.getReceived());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals("phone: the phone already exists", report.getErrors().get(0).getMessage());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals("age: must be a number", report.getErrors().get(1).getMessage());
+        assertEquals("Ana, Maria", userRepository.findByEmail("csv1@import.com").orElseThrow().getFirstName());
+    }
+
+    @Test
+    void importKeepsThePersistenceContextChunkSized() throws IOException {
+        // Binds one persistence context around the whole import, as open-in-view would.
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 9; i++) {
+                body.append("{\"firstName\":\"Chunk\",\"lastName\":\"Row").append(i)
+                        .append("\",\"email\":\"chunk").append(i).append("@import.com\",\"password\":\"secret1\",")
+                        .append("\"phone\":\"+57333333").append(10 + i)
+                        .append("\",\"age\":30,\"gender\":\"MALE\",\"country\":\"Peru\"}\n");
+            }
+
+            UserImportResponseDto report = userImportService.importUsers(
+                    new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), FileFormat.NDJSON);
+
+            assertEquals(9, report.getImported());
+            assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    private UserImportResponseDto importUsers(String format, String contentType, String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.parseMediaType(contentType));
+
+        ResponseEntity<UserImportResponseDto> response = client.postForEntity(
+                createURI("/api/users/import?format=" + format), new HttpEntity<>(body, headers),
+                UserImportResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        return response.getBody();
+    }
+
+    private String createURI(String uri) {
+        return "http://localhost:" + port + uri;
+    }
+}
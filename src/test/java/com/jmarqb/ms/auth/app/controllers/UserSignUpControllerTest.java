@@ -3,10 +3,13 @@ package com.jmarqb.ms.auth.app.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jmarqb.ms.auth.app.dtos.request.CreateUserDto;
 import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
 import com.jmarqb.ms.auth.app.security.config.SpringSecurityConfig;
 import com.jmarqb.ms.auth.app.services.UserService;
 import com.jmarqb.ms.auth.app.services.impl.JpaUserDetailsService;
 import com.jmarqb.ms.auth.app.services.impl.JwtService;
+import com.jmarqb.ms.auth.app.services.impl.TokenIntrospectionService;
+import com.jmarqb.ms.auth.app.services.impl.TokenRevocationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -37,6 +40,15 @@ class UserSignUpControllerTest {
     @MockBean
     JpaUserDetailsService jpaUserDetailsService;
 
+    @MockBean
+    TokenAuthenticationCache tokenAuthenticationCache;
+
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    TokenIntrospectionService tokenIntrospectionService;
+
     @Test
     void register() throws Exception {
         CreateUserDto createUserDto = createUserDto();
@@ -101,6 +101,23 @@ public class RoleJpaTest {
         assertThat(roles.get(1)).usingRecursiveComparison().ignoringFields("id").isEqualTo(roleUser);
     }
 
+    @Test
+    void searchAllAfterAndBefore() {
+        List<Role> all = roleRepository.searchAll(PageRequest.of(0, 20, Sort.Direction.ASC, "id"));
+        Long first = all.get(0).getId();
+        Long second = all.get(1).getId();
+
+        List<Role> after = roleRepository.searchAllAfter(first, PageRequest.of(0, 20, Sort.Direction.ASC, "id"));
+        List<Role> before = roleRepository.searchAllBefore(second, PageRequest.of(0, 20, Sort.Direction.DESC, "id"));
+
+        assertEquals(List.of(second), after.stream().map(Role::getId).toList());
+        assertEquals(List.of(first), before.stream().map(Role::getId).toList());
+        assertEquals(List.of(second), roleRepository.searchAllByRegexAfter("u", first,
+                PageRequest.of(0, 20, Sort.Direction.ASC, "id")).stream().map(Role::getId).toList());
+        assertTrue(roleRepository.searchAllByRegexBefore("u", second,
+                PageRequest.of(0, 20, Sort.Direction.DESC, "id")).isEmpty());
+    }
+
     @Test
     void findByIdAndDeletedFalse() {
         Role role = roleRepository.findByIdAndDeletedFalse(roleAdmin.getId());
@@ -0,0 +1,134 @@
+package com.jmarqb.ms.auth.app.jpatest;
+
+import com.jmarqb.ms.auth.app.dtos.request.SearchBodyDto;
+import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.services.UserService;
+import com.jmarqb.ms.auth.app.services.impl.UserSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the JDBC statements behind user reads and bulk writes, so neither can fall back to one statement per user.
+ */
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class UserFetchPlanTest {
+
+    private static final int USERS = 30;
+
+    private @Autowired UserService userService;
+    private @Autowired UserRepository userRepository;
+    private @Autowired RoleRepository roleRepository;
+    private @Autowired UserSearchIndex userSearchIndex;
+    private @Autowired EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (userRepository.existsByEmail("fetchplan0@example.com")) {
+            return;
+        }
+        List<Role> roles = List.of(roleRepository.findByName("USER").orElseThrow(),
+                roleRepository.findByName("ADMIN").orElseThrow());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder()
+                    .firstName("Fetch" + i)
+                    .lastName("Plan")
+                    .email("fetchplan" + i + "@example.com")
+                    .password("password")
+                    .gender(Gender.FEMALE)
+                    .country("Testland")
+                    .roles(new ArrayList<>(roles))
+                    .build());
+        }
+        userRepository.saveAll(users);
+        userSearchIndex.catchUp();
+    }
+
+    @Test
+    void databaseSearchLoadsRolesOfThePageInOneStatement() {
+        for (int size : new int[]{5, USERS}) {
+            SearchBodyDto search = SearchBodyDto.builder()
+                    .search("fetchplan").mode("PREFIX").totalStrategy("EXACT")
+                    .page(0).size(size).sort("ASC").build();
+
+            PaginatedResponseDto response = count(() -> userService.search(search));
+
+            assertEquals(size, response.getData().size());
+            assertEquals(2, ((CreateUserResponseDto) response.getData().get(0)).getRoles().size());
+            // ids matching on each column, the page with its roles and the total
+            assertEquals(4, statistics.getPrepareStatementCount(), "statements for a page of " + size);
+        }
+    }
+
+    @Test
+    void indexSearchLoadsUsersAndRolesInOneStatement() {
+        SearchBodyDto search = SearchBodyDto.builder()
+                .search("fetch").page(0).size(USERS).sort("ASC").build();
+
+        PaginatedResponseDto response = count(() -> userService.search(search));
+
+        assertEquals(USERS, response.getData().size());
+        assertEquals(2, ((CreateUserResponseDto) response.getData().get(USERS - 1)).getRoles().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findUserLoadsRolesWithTheUser() {
+        Long id = userRepository.findByEmail("fetchplan0@example.com").orElseThrow().getId();
+
+        CreateUserResponseDto user = count(() -> userService.findUser(id));
+
+        assertEquals(2, user.getRoles().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void bulkSaveSendsUsersAndRolesInBatches() {
+        Role role = roleRepository.findByName("USER").orElseThrow();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(User.builder()
+                    .firstName("Batch" + i)
+                    .lastName("Insert")
+                    .email("batchinsert" + i + "@example.com")
+                    .password("password")
+                    .gender(Gender.MALE)
+                    .country("Testland")
+                    .roles(new ArrayList<>(List.of(role)))
+                    .build());
+        }
+
+        List<User> saved = count(() -> userRepository.saveAll(users));
+
+        assertEquals(120, saved.stream().map(User::getId).distinct().count());
+        // one insert into users and one into users_roles, each executed in batches
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private <T> T count(Supplier<T> read) {
+        statistics.clear();
+        return read.get();
+    }
+}
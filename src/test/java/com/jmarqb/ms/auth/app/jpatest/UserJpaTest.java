@@ -0,0 +1,98 @@
+package com.jmarqb.ms.auth.app.jpatest;
+
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.repositories.RegisteredEmail;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs on the configured database, which is in MySQL mode, rather than a default embedded one.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class UserJpaTest {
+
+    private @Autowired UserRepository userRepository;
+    private @Autowired RoleRepository roleRepository;
+
+    @Test
+    void updatesAreVisibleToCatchUpScans() throws InterruptedException {
+        User user = userRepository.saveAndFlush(user("before@example.com"));
+        assertEquals(user.getCreatedAt(), user.getUpdatedAt());
+        Thread.sleep(5);
+        Date since = new Date();
+
+        user.setEmail("after@example.com");
+        userRepository.saveAndFlush(user);
+
+        assertTrue(user.getUpdatedAt().getTime() >= since.getTime());
+        List<RegisteredEmail> updated = userRepository.findRegisteredEmailsUpdatedSince(since, 0L,
+                PageRequest.ofSize(10));
+        assertEquals(List.of("after@example.com"), updated.stream().map(RegisteredEmail::email).toList());
+    }
+
+    @Test
+    void addingRolesSkipsPairsThatAlreadyExist() {
+        Role role = roleRepository.saveAndFlush(Role.builder().name("JPA_TEST").build());
+        User member = user("member@example.com");
+        member.setRoles(new ArrayList<>(List.of(role)));
+        Long memberId = userRepository.saveAndFlush(member).getId();
+        Long otherId = userRepository.saveAndFlush(user("other@example.com")).getId();
+
+        assertEquals(1, userRepository.addRoleToActiveUsers(role.getId(), List.of(memberId, otherId)));
+        assertEquals(0, userRepository.addRoleToActiveUsers(role.getId(), List.of(memberId, otherId)));
+    }
+
+    @Test
+    void prefixSearchesApplyOnlyTheGivenConditions() {
+        Long first = userRepository.saveAndFlush(user("ada@example.com")).getId();
+        User female = user("adele@example.com");
+        female.setGender(Gender.FEMALE);
+        Long second = userRepository.saveAndFlush(female).getId();
+        User deleted = user("adam@example.com");
+        deleted.setDeleted(true);
+        userRepository.saveAndFlush(deleted);
+        Long third = userRepository.saveAndFlush(user("Adrian@Example.com")).getId();
+        userRepository.saveAndFlush(user("bob@example.com"));
+        PageRequest asc = PageRequest.of(0, 10, Sort.Direction.ASC, "id");
+        PageRequest desc = PageRequest.of(0, 2, Sort.Direction.DESC, "id");
+
+        assertEquals(List.of(first, second, third),
+                userRepository.findIdsByEmailPrefix("ad%", Long.MIN_VALUE, Long.MAX_VALUE, null, null, asc));
+        assertEquals(List.of(third, second),
+                userRepository.findIdsByEmailPrefix("ad%", Long.MIN_VALUE, Long.MAX_VALUE, null, null, desc));
+        assertEquals(List.of(second, first),
+                userRepository.findIdsByEmailPrefix("ad%", Long.MIN_VALUE, third, null, null, desc));
+        assertEquals(List.of(third),
+                userRepository.findIdsByEmailPrefix("ad%", second, Long.MAX_VALUE, Gender.MALE, "TESTLAND", asc));
+        assertEquals(List.of(second),
+                userRepository.findIdsByEmailPrefix("ad%", Long.MIN_VALUE, Long.MAX_VALUE, Gender.FEMALE, null, asc));
+        assertEquals(List.of(first, second, third),
+                userRepository.findIdsByLastNamePrefix("te%", first - 1, third + 1, null, "testland", asc));
+        assertEquals(List.of(),
+                userRepository.findIdsByLastNamePrefix("te%", Long.MIN_VALUE, Long.MAX_VALUE, null, "Peru", asc));
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .firstName("Jpa")
+                .lastName("Test")
+                .email(email)
+                .password("password")
+                .gender(Gender.MALE)
+                .country("Testland")
+                .build();
+    }
+}
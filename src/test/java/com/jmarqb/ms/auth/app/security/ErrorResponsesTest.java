@@ -0,0 +1,91 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jmarqb.ms.auth.app.entities.Error;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponsesTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final ErrorResponses errorResponses = new ErrorResponses(objectMapper);
+
+    @Test
+    void bodyMatchesMapperOutput() throws Exception {
+        byte[] body = errorResponses.body(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid token");
+
+        JsonNode actual = objectMapper.readTree(body);
+        Date timestamp = objectMapper.convertValue(actual.get("timestamp"), Date.class);
+        JsonNode expected = objectMapper.valueToTree(Error.builder()
+                .timestamp(timestamp)
+                .status(401)
+                .error("Unauthorized")
+                .message("Invalid token")
+                .build());
+
+        assertEquals(expected, actual);
+        assertEquals(List.of("timestamp", "status", "error", "message", "fieldErrors"), fieldNames(actual));
+        assertTrue(Math.abs(System.currentTimeMillis() - timestamp.getTime()) < 60_000);
+    }
+
+    @Test
+    void writeCommitsResponse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        errorResponses.write(response, HttpStatus.UNAUTHORIZED, ErrorResponses.UNAUTHORIZED, ErrorResponses.UNAUTHORIZED);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        assertTrue(response.isCommitted());
+        assertEquals("Unauthorized", objectMapper.readTree(response.getContentAsByteArray()).get("message").asText());
+    }
+
+    @Test
+    void toResponseEntity() throws Exception {
+        ResponseEntity<byte[]> entity = errorResponses.toResponseEntity(HttpStatus.BAD_REQUEST, "Duplicate Key", "dup");
+
+        assertEquals(HttpStatus.BAD_REQUEST, entity.getStatusCode());
+        assertEquals("application/json", entity.getHeaders().getContentType().toString());
+        assertEquals(400, objectMapper.readTree(entity.getBody()).get("status").asInt());
+    }
+
+    @Test
+    void cacheIsBounded() throws Exception {
+        for (int i = 0; i < ErrorResponses.MAX_CACHED + 10; i++) {
+            byte[] body = errorResponses.body(HttpStatus.UNAUTHORIZED, "Invalid credentials", "message " + i);
+            assertEquals("message " + i, objectMapper.readTree(body).get("message").asText());
+        }
+
+        assertEquals(ErrorResponses.MAX_CACHED, errorResponses.cachedSize());
+    }
+
+    @Test
+    void rejectsMapperOmittingNulls() {
+        ObjectMapper nonNull = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> new ErrorResponses(nonNull));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        return ((ObjectNode) node).properties().stream().map(Map.Entry::getKey).toList();
+    }
+}
@@ -0,0 +1,195 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.jmarqb.ms.auth.app.exceptions.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void allowsBurstThenRejectsWithRetryAfter() {
+        LoginRateLimiter limiter = newLimiter(100, 5, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("user@example.com", "10.0.0.1");
+        }
+        TooManyLoginAttemptsException ex = assertThrows(TooManyLoginAttemptsException.class,
+                () -> limiter.acquire("user@example.com", "10.0.0.1"));
+
+        assertEquals(Duration.ofSeconds(12), ex.getRetryAfter());
+    }
+
+    @Test
+    void refillsOverTime() {
+        LoginRateLimiter limiter = newLimiter(100, 5, 1000);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("user@example.com", "10.0.0.1");
+        }
+
+        nanos.addAndGet(Duration.ofSeconds(12).toNanos());
+
+        limiter.acquire("user@example.com", "10.0.0.1");
+        assertThrows(TooManyLoginAttemptsException.class, () -> limiter.acquire("user@example.com", "10.0.0.1"));
+    }
+
+    @Test
+    void emailsAreNormalized() {
+        LoginRateLimiter limiter = newLimiter(100, 1, 1000);
+        limiter.acquire("user@example.com", "10.0.0.1");
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> limiter.acquire(" User@Example.com", "10.0.0.1"));
+        limiter.acquire("other@example.com", "10.0.0.1");
+    }
+
+    @Test
+    void attemptsFromOtherAddressesDoNotLockTheEmailOut() {
+        LoginRateLimiter limiter = newLimiter(100, 2, 1000);
+        for (int i = 0; i < 10; i++) {
+            String address = "10.0.1." + i;
+            limiter.acquire("victim@example.com", address);
+            limiter.acquire("victim@example.com", address);
+            assertThrows(TooManyLoginAttemptsException.class, () -> limiter.acquire("victim@example.com", address));
+        }
+
+        limiter.acquire("victim@example.com", "10.0.0.1");
+    }
+
+    @Test
+    void addressLimitSpansEmails() {
+        LoginRateLimiter limiter = newLimiter(3, 10, 1000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> limiter.acquire("user9@example.com", "10.0.0.1"));
+        limiter.acquire("user9@example.com", "10.0.0.2");
+        assertEquals(1, registry.get("login.rate_limit.rejected").tag("limit", "address").functionCounter().count());
+        assertEquals(0, registry.get("login.rate_limit.rejected").tag("limit", "email").functionCounter().count());
+    }
+
+    @Test
+    void idleBucketsAreEvicted() {
+        LoginRateLimiter limiter = newLimiter(100, 5, 1000);
+        limiter.acquire("user@example.com", "10.0.0.1");
+        assertEquals(2, limiter.size());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        limiter.cleanUp();
+
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        LoginRateLimiter limiter = newLimiter(100, 5, 100);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire("user" + i + "@example.com", "10.0." + (i / 100) + "." + (i % 100));
+        }
+        limiter.cleanUp();
+
+        assertTrue(limiter.size() <= 200);
+    }
+
+    @Test
+    void disabledNeverRejects() {
+        LoginRateLimiter limiter = new LoginRateLimiter(false, 1, Duration.ofMinutes(1), 1, Duration.ofMinutes(1),
+                1000, nanos::get);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("user@example.com", "10.0.0.1");
+        }
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void hotKeyNeverOverGrantsUnderContention() throws Exception {
+        LoginRateLimiter limiter = newLimiter(1_000_000, 500, 1000);
+        int threads = 16;
+        int attemptsPerThread = 2_000;
+
+        List<Long> granted = runConcurrently(threads, () -> {
+            long count = 0;
+            for (int i = 0; i < attemptsPerThread; i++) {
+                try {
+                    limiter.acquire("victim@example.com", "10.0.0.1");
+                    count++;
+                } catch (TooManyLoginAttemptsException e) {
+                    // expected once the bucket is empty
+                }
+            }
+            return count;
+        });
+
+        assertEquals(500, granted.stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void manyKeysUnderHighRequestRate() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(true, Integer.MAX_VALUE, Duration.ofMinutes(1),
+                Integer.MAX_VALUE, Duration.ofMinutes(1), 100_000, System::nanoTime);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int attemptsPerThread = 200_000;
+
+        long start = System.nanoTime();
+        runConcurrently(threads, () -> {
+            long thread = Thread.currentThread().threadId();
+            for (int i = 0; i < attemptsPerThread; i++) {
+                limiter.acquire("user" + (i % 10_000) + "@example.com", "10.0." + thread + "." + (i % 256));
+            }
+            return 0L;
+        });
+        long elapsed = System.nanoTime() - start;
+
+        // A single global lock would serialize every attempt; the buckets keep millions of attempts well inside this.
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(20),
+                "took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+        limiter.cleanUp();
+        assertTrue(limiter.size() <= 200_000);
+    }
+
+    private LoginRateLimiter newLimiter(int addressCapacity, int emailCapacity, long maxEntries) {
+        return new LoginRateLimiter(true, addressCapacity, Duration.ofMinutes(1), emailCapacity,
+                Duration.ofMinutes(1), maxEntries, nanos::get);
+    }
+
+    private static List<Long> runConcurrently(int threads, Callable<Long> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncodersTest {
+
+    private final PasswordEncoder bcrypt = PasswordEncoders.delegating(PasswordEncoders.BCRYPT,
+            PasswordEncoders.bcrypt(5), PasswordEncoders.argon2(1024, 1, 1));
+
+    private final PasswordEncoder argon2 = PasswordEncoders.delegating(PasswordEncoders.ARGON2,
+            PasswordEncoders.bcrypt(5), PasswordEncoders.argon2(1024, 2, 1));
+
+    @Test
+    void encodesWithAlgorithmPrefix() {
+        assertTrue(bcrypt.encode("password").startsWith("{bcrypt}$2a$05$"));
+        assertTrue(argon2.encode("password").startsWith("{argon2}$argon2id$"));
+    }
+
+    @Test
+    void matchesLegacyUnprefixedBcrypt() {
+        String legacy = PasswordEncoders.bcrypt(4).encode("password");
+
+        assertTrue(bcrypt.matches("password", legacy));
+        assertTrue(argon2.matches("password", legacy));
+        assertTrue(bcrypt.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void upgradesOutdatedCost() {
+        String weaker = PasswordEncoders.delegating(PasswordEncoders.BCRYPT,
+                PasswordEncoders.bcrypt(4), PasswordEncoders.argon2(1024, 1, 1)).encode("password");
+
+        assertTrue(bcrypt.upgradeEncoding(weaker));
+        assertFalse(bcrypt.upgradeEncoding(bcrypt.encode("password")));
+    }
+
+    @Test
+    void upgradesOtherAlgorithm() {
+        String bcryptHash = bcrypt.encode("password");
+
+        assertTrue(argon2.matches("password", bcryptHash));
+        assertTrue(argon2.upgradeEncoding(bcryptHash));
+        assertFalse(argon2.upgradeEncoding(argon2.encode("password")));
+    }
+
+    @Test
+    void rejectsUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordEncoders.delegating("md5",
+                PasswordEncoders.bcrypt(5), PasswordEncoders.argon2(1024, 1, 1)));
+    }
+}
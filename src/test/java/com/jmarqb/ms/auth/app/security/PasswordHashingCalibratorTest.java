@@ -0,0 +1,37 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingCalibratorTest {
+
+    private final PasswordHashingCalibrator calibrator =
+            new PasswordHashingCalibrator(Duration.ofMillis(5), 3, 1024, 1);
+
+    @Test
+    void calibrateBcryptStaysNearTarget() {
+        PasswordHashingCalibrator.Recommendation recommendation = calibrator.calibrateBcrypt();
+
+        int strength = Integer.parseInt(recommendation.properties().get("ms-auth.password-hashing.bcrypt.strength"));
+        assertTrue(strength >= 4 && strength <= 8, "strength " + strength);
+        assertEquals("bcrypt", recommendation.properties().get("ms-auth.password-hashing.algorithm"));
+    }
+
+    @Test
+    void runPrintsProperties() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        calibrator.run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        String report = output.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("ms-auth.password-hashing.bcrypt.strength="));
+        assertTrue(report.contains("ms-auth.password-hashing.argon2.iterations="));
+        assertTrue(report.contains("logins/s per node"));
+    }
+}
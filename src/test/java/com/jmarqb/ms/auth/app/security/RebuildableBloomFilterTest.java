@@ -0,0 +1,35 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RebuildableBloomFilterTest {
+
+    @Test
+    void notReadyBeforeFirstRebuild() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(1000, 0.001);
+
+        assertFalse(filter.isReady());
+
+        filter.complete(filter.startRebuild());
+
+        assertTrue(filter.isReady());
+    }
+
+    @Test
+    void valuesAddedDuringRebuildSurviveTheSwap() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(1000, 0.001);
+        filter.add("old");
+
+        BloomFilter rebuilt = filter.startRebuild();
+        rebuilt.add("scanned");
+        filter.add("concurrent");
+        assertTrue(filter.mightContain("old"));
+        filter.complete(rebuilt);
+
+        assertTrue(filter.mightContain("scanned"));
+        assertTrue(filter.mightContain("concurrent"));
+        assertFalse(filter.mightContain("old"));
+    }
+}
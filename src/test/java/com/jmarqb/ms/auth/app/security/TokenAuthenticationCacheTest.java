@@ -0,0 +1,75 @@
+package com.jmarqb.ms.auth.app.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenAuthenticationCacheTest {
+
+    private static final String TOKEN = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.signature";
+
+    private final UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "testadmin@example.com", null, List.of(new SimpleGrantedAuthority("ADMIN")));
+
+    @Test
+    void hitReturnsFreshCopy() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(true, 100, Duration.ofMinutes(5));
+        cache.put(TOKEN, authentication, inOneHour());
+
+        UsernamePasswordAuthenticationToken first = cache.get(TOKEN);
+        UsernamePasswordAuthenticationToken second = cache.get(TOKEN);
+
+        assertNotNull(first);
+        assertNotSame(first, second);
+        assertEquals("testadmin@example.com", first.getPrincipal());
+        assertEquals(authentication.getAuthorities(), first.getAuthorities());
+        assertTrue(first.isAuthenticated());
+        assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    void missOnUnknownToken() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(true, 100, Duration.ofMinutes(5));
+        cache.put(TOKEN, authentication, inOneHour());
+
+        assertNull(cache.get(TOKEN + "x"));
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void expiredTokenIsNotCached() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(true, 100, Duration.ofMinutes(5));
+        cache.put(TOKEN, authentication, new Date(System.currentTimeMillis() - 1000));
+
+        assertNull(cache.get(TOKEN));
+    }
+
+    @Test
+    void disabledCacheNeverStores() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(false, 100, Duration.ofMinutes(5));
+        cache.put(TOKEN, authentication, inOneHour());
+
+        assertNull(cache.get(TOKEN));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateAll() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(true, 100, Duration.ofMinutes(5));
+        cache.put(TOKEN, authentication, inOneHour());
+
+        cache.invalidateAll();
+
+        assertNull(cache.get(TOKEN));
+    }
+
+    private Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3600000);
+    }
+}
@@ -0,0 +1,136 @@
+package com.jmarqb.ms.auth.app.security;
+
+import com.jmarqb.ms.auth.app.entities.UserInvalidation;
+import com.jmarqb.ms.auth.app.repositories.UserInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsCacheTest {
+
+    @Mock
+    private UserInvalidationRepository userInvalidationRepository;
+
+    private UserDetailsCache userDetailsCache;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = new UserDetailsCache(userInvalidationRepository,
+                new TokenAuthenticationCache(true, 100, Duration.ofMinutes(5)), true, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void evictionIsPublishedForOtherInstances() {
+        cache("ana@example.com");
+
+        userDetailsCache.evictAfterCommit("ana@example.com");
+
+        assertNull(userDetailsCache.get("ana@example.com"));
+        List<UserInvalidation> published = published();
+        assertEquals(1, published.size());
+        assertEquals("ana@example.com", published.get(0).getEmail());
+    }
+
+    @Test
+    void largeEvictionsArePublishedAsEvictAll() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i <= UserDetailsCache.MAX_PUBLISHED_EMAILS; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+
+        userDetailsCache.evictAfterCommit(emails);
+
+        List<UserInvalidation> published = published();
+        assertEquals(1, published.size());
+        assertNull(published.get(0).getEmail());
+    }
+
+    @Test
+    void catchUpAppliesOtherInstancesInvalidationsOnce() {
+        cache("ana@example.com");
+        cache("bob@example.com");
+        when(userInvalidationRepository.findByInvalidatedAtGreaterThanEqual(any(Date.class)))
+                .thenReturn(List.of(invalidation(1L, "ana@example.com")));
+
+        userDetailsCache.catchUp();
+
+        assertNull(userDetailsCache.get("ana@example.com"));
+        assertNotNull(userDetailsCache.get("bob@example.com"));
+
+        // The same row comes back while it is within the scan overlap, but is not applied again.
+        cache("ana@example.com");
+        userDetailsCache.catchUp();
+
+        assertNotNull(userDetailsCache.get("ana@example.com"));
+    }
+
+    @Test
+    void catchUpEvictsEveryoneOnEvictAll() {
+        cache("ana@example.com");
+        cache("bob@example.com");
+        when(userInvalidationRepository.findByInvalidatedAtGreaterThanEqual(any(Date.class)))
+                .thenReturn(List.of(invalidation(1L, "ana@example.com"), invalidation(2L, null)));
+
+        userDetailsCache.catchUp();
+
+        assertNull(userDetailsCache.get("ana@example.com"));
+        assertNull(userDetailsCache.get("bob@example.com"));
+    }
+
+    @Test
+    void usersReadBeforeAnEvictionAreNotCached() {
+        long stamp = userDetailsCache.stamp("ana@example.com");
+        userDetailsCache.evictAfterCommit("ana@example.com");
+
+        userDetailsCache.put(user("ana@example.com"), stamp);
+        assertNull(userDetailsCache.get("ana@example.com"));
+
+        cache("ana@example.com");
+        assertNotNull(userDetailsCache.get("ana@example.com"));
+    }
+
+    @Test
+    void usersReadBeforeAnEvictAllAreNotCached() {
+        long stamp = userDetailsCache.stamp("bob@example.com");
+        when(userInvalidationRepository.findByInvalidatedAtGreaterThanEqual(any(Date.class)))
+                .thenReturn(List.of(invalidation(1L, null)));
+        userDetailsCache.catchUp();
+
+        userDetailsCache.put(user("bob@example.com"), stamp);
+
+        assertNull(userDetailsCache.get("bob@example.com"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UserInvalidation> published() {
+        ArgumentCaptor<List<UserInvalidation>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userInvalidationRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private void cache(String email) {
+        userDetailsCache.put(user(email), userDetailsCache.stamp(email));
+    }
+
+    private static UserInvalidation invalidation(Long id, String email) {
+        return new UserInvalidation(id, email, new Date());
+    }
+
+    private static AuthenticatedUser user(String email) {
+        return new AuthenticatedUser(1L, email, "{noop}secret", List.of(new SimpleGrantedAuthority("USER")));
+    }
+}
@@ -2,7 +2,12 @@ package com.jmarqb.ms.auth.app.services.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.jmarqb.ms.auth.app.dtos.request.LoginDto;
+import com.jmarqb.ms.auth.app.dtos.request.RefreshTokenDto;
 import com.jmarqb.ms.auth.app.dtos.response.AuthResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.CurrentUserResponseDto;
+import com.jmarqb.ms.auth.app.exceptions.TooManyLoginAttemptsException;
+import com.jmarqb.ms.auth.app.security.LoginRateLimiter;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -10,10 +15,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,6 +37,18 @@ class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private JpaUserDetailsService userDetailsService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private LoginRateLimiter loginRateLimiter;
+
     @InjectMocks
     private AuthService authService;
 
@@ -44,11 +66,14 @@ class AuthServiceTest {
 
         String mockToken = "eyJhbGciOiJIUzI1NiJ9.mock.jwt.token";
         when(jwtService.generateToken((org.springframework.security.core.userdetails.User)mockUser)).thenReturn(mockToken);
+        when(mockUser.getUsername()).thenReturn(loginDto.getEmail());
+        when(refreshTokenService.issue(loginDto.getEmail())).thenReturn("refresh-token");
 
-        AuthResponseDto response = authService.login(loginDto);
+        AuthResponseDto response = authService.login(loginDto, "127.0.0.1");
 
         assertNotNull(response);
         assertEquals(mockToken, response.getToken());
+        assertEquals("refresh-token", response.getRefreshToken());
 
         verify(authenticationManager).authenticate(new UsernamePasswordAuthenticationToken(
                 loginDto.getEmail(), loginDto.getPassword()
@@ -63,31 +88,90 @@ class AuthServiceTest {
         when(authenticationManager.authenticate(any(Authentication.class)))
                 .thenThrow(new BadCredentialsException("Invalid email or password"));
 
-        assertThrows(BadCredentialsException.class, () -> authService.login(loginDto));
+        assertThrows(BadCredentialsException.class, () -> authService.login(loginDto, "127.0.0.1"));
 
         verify(authenticationManager).authenticate(any(Authentication.class));
         verifyNoInteractions(jwtService);
     }
 
     @Test
-    void loginThrowJsonProcessingException() throws JsonProcessingException {
+    void loginRateLimitedSkipsAuthentication() {
         LoginDto loginDto = new LoginDto("admin@test.com", "1234");
-        User mockUser = mock(User.class);
+        doThrow(new TooManyLoginAttemptsException("Too many login attempts, try again later", Duration.ofSeconds(6)))
+                .when(loginRateLimiter).acquire("admin@test.com", "127.0.0.1");
 
-        Authentication mockAuthentication = mock(Authentication.class);
-        when(mockAuthentication.getPrincipal()).thenReturn(mockUser);
+        assertThrows(TooManyLoginAttemptsException.class, () -> authService.login(loginDto, "127.0.0.1"));
 
-        when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
-                loginDto.getEmail(), loginDto.getPassword()
-        ))).thenReturn(mockAuthentication);
+        verifyNoInteractions(authenticationManager, jwtService, refreshTokenService);
+    }
+
+    @Test
+    void refresh() throws JsonProcessingException {
+        User user = new User("admin@test.com", "1234", List.of());
+        when(refreshTokenService.rotate("old-refresh-token"))
+                .thenReturn(new RefreshTokenService.Rotation("admin@test.com", "new-refresh-token"));
+        when(userDetailsService.loadUserByUsername("admin@test.com")).thenReturn(user);
+        when(jwtService.generateToken(user)).thenReturn("access-token");
+
+        AuthResponseDto response = authService.refresh(new RefreshTokenDto("old-refresh-token"));
+
+        assertEquals("access-token", response.getToken());
+        assertEquals("new-refresh-token", response.getRefreshToken());
+        verifyNoInteractions(authenticationManager);
+    }
 
-        when(jwtService.generateToken(mockUser)).thenThrow(new JsonProcessingException("Error generating token") {});
+    @Test
+    void refreshThrowBadCredentialsExceptionWhenRotationFails() {
+        when(refreshTokenService.rotate("reused")).thenThrow(new BadCredentialsException("Refresh token reuse detected"));
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.login(loginDto));
-        assertEquals("Error generating token", exception.getCause().getMessage());
+        assertThrows(BadCredentialsException.class, () -> authService.refresh(new RefreshTokenDto("reused")));
+        verifyNoInteractions(jwtService, userDetailsService);
+    }
 
+    @Test
+    void refreshThrowBadCredentialsExceptionWhenUserIsGone() {
+        when(refreshTokenService.rotate("old-refresh-token"))
+                .thenReturn(new RefreshTokenService.Rotation("deleted@test.com", "new-refresh-token"));
+        when(userDetailsService.loadUserByUsername("deleted@test.com"))
+                .thenThrow(new UsernameNotFoundException("deleted@test.com"));
 
-        verify(authenticationManager).authenticate(any(Authentication.class));
-        verify(jwtService).generateToken(mockUser);
+        assertThrows(BadCredentialsException.class, () -> authService.refresh(new RefreshTokenDto("old-refresh-token")));
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void logout() {
+        TokenClaims claims = new TokenClaims("3f1c2a9e-6c1d-4a8b-9d0e-2b7f5c4e8a11", "admin@test.com", 1L, List.of("ADMIN"),
+                new Date(), new Date(System.currentTimeMillis() + 3600000));
+        Authentication authentication = new UsernamePasswordAuthenticationToken("admin@test.com", claims, List.of());
+
+        authService.logout(authentication, new RefreshTokenDto("refresh-token"));
+
+        verify(tokenRevocationService).revokeToken(claims);
+        verify(refreshTokenService).revoke("refresh-token");
+    }
+
+    @Test
+    void currentUser() {
+        Date issuedAt = new Date();
+        Date expiration = new Date(issuedAt.getTime() + 3600000);
+        TokenClaims claims = new TokenClaims("3f1c2a9e-6c1d-4a8b-9d0e-2b7f5c4e8a11", "admin@test.com", 1L, List.of("ADMIN"), issuedAt, expiration);
+        Authentication authentication = new UsernamePasswordAuthenticationToken("admin@test.com", claims, List.of());
+
+        CurrentUserResponseDto response = authService.currentUser(authentication);
+
+        assertEquals(1L, response.getId());
+        assertEquals("admin@test.com", response.getEmail());
+        assertEquals(List.of("ADMIN"), response.getAuthorities());
+        assertEquals(issuedAt, response.getIssuedAt());
+        assertEquals(expiration, response.getExpiresAt());
+        verifyNoInteractions(jwtService, authenticationManager);
+    }
+
+    @Test
+    void currentUserWithoutTokenClaims() {
+        Authentication authentication = new UsernamePasswordAuthenticationToken("admin@test.com", null, List.of());
+
+        assertThrows(InsufficientAuthenticationException.class, () -> authService.currentUser(authentication));
     }
-}
\ No newline at end of file
+}
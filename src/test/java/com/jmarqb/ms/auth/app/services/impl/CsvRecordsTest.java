@@ -0,0 +1,44 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordsTest {
+
+    @Test
+    void readsPlainRecordsWithEitherLineEnding() throws IOException {
+        CsvRecords records = new CsvRecords(new StringReader("a,b,c\r\n1,,3\n4,5,6"));
+
+        assertEquals(List.of("a", "b", "c"), records.next());
+        assertEquals(1, records.line());
+        assertEquals(List.of("1", "", "3"), records.next());
+        assertEquals(2, records.line());
+        assertEquals(List.of("4", "5", "6"), records.next());
+        assertEquals(3, records.line());
+        assertNull(records.next());
+    }
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        CsvRecords records = new CsvRecords(new StringReader("\"Doe, John\",\"say \"\"hi\"\"\",\"two\nlines\"\nnext,x\n"));
+
+        assertEquals(List.of("Doe, John", "say \"hi\"", "two\nlines"), records.next());
+        assertEquals(1, records.line());
+        assertEquals(List.of("next", "x"), records.next());
+        assertEquals(3, records.line());
+        assertNull(records.next());
+    }
+
+    @Test
+    void roundTripsExportedFields() throws IOException {
+        String value = "a,\"b\"\r\nc";
+        CsvRecords records = new CsvRecords(new StringReader(UserExportService.csv(value) + ",end\r\n"));
+
+        assertEquals(List.of(value, "end"), records.next());
+    }
+}
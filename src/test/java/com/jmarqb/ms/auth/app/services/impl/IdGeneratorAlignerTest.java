@@ -0,0 +1,125 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class IdGeneratorAlignerTest {
+
+    private @Autowired JdbcTemplate jdbcTemplate;
+    private @Autowired RoleRepository roleRepository;
+
+    private IdGeneratorAligner idGeneratorAligner;
+
+    @BeforeEach
+    void setUp() {
+        idGeneratorAligner = new IdGeneratorAligner(jdbcTemplate);
+    }
+
+    // Undoes what the non-transactional tests committed, for the other tests sharing the database.
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM roles");
+        jdbcTemplate.update("UPDATE id_generators SET next_val = 0 WHERE sequence_name = 'roles'");
+    }
+
+    @Test
+    void movesTheAllocatorPastExistingIds() {
+        insertUser(5000);
+
+        idGeneratorAligner.align("users");
+        assertEquals(5000 + IdGeneratorAligner.GAP, nextVal("users"));
+
+        // Restarts leave an allocator that is ahead where it is.
+        idGeneratorAligner.align("users");
+        assertEquals(5000 + IdGeneratorAligner.GAP, nextVal("users"));
+    }
+
+    @Test
+    void createsAMissingAllocatorRow() {
+        jdbcTemplate.update("DELETE FROM id_generators WHERE sequence_name = 'users'");
+        insertUser(70);
+
+        idGeneratorAligner.align("users");
+
+        assertEquals(70 + IdGeneratorAligner.GAP, nextVal("users"));
+    }
+
+    @Test
+    void leavesAnAllocatorThatIsAheadAlone() {
+        insertUser(70);
+        jdbcTemplate.update("UPDATE id_generators SET next_val = 71 WHERE sequence_name = 'users'");
+
+        idGeneratorAligner.align("users");
+
+        assertEquals(71L, nextVal("users"));
+    }
+
+    @Test
+    void leavesEmptyTablesAlone() {
+        Long before = nextVal("roles");
+
+        idGeneratorAligner.align("roles");
+
+        assertEquals(before, nextVal("roles"));
+    }
+
+    // The role allocator updates its row in a transaction of its own, which must not wait on the test's.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rolesCreatedAfterAlignmentStillEncodeIntoTheBitmask() {
+        for (long id = 1; id <= 3; id++) {
+            insertRole(id);
+        }
+
+        idGeneratorAligner.align("roles");
+        Role role = roleRepository.saveAndFlush(Role.builder().name("AUDITOR").build());
+
+        assertEquals(4L, role.getId());
+        RoleIdRegistry registry = new RoleIdRegistry(roleRepository, Duration.ofMinutes(1));
+        assertEquals(OptionalLong.of(1L << 3), registry.mask(List.of("AUDITOR")));
+    }
+
+    // The role allocator updates its row in a transaction of its own, which must not wait on the test's.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void pullsARolesAllocatorLeftPastTheBitmaskBack() {
+        insertRole(2);
+        jdbcTemplate.update("UPDATE id_generators SET next_val = 1000050 WHERE sequence_name = 'roles'");
+
+        idGeneratorAligner.align("roles");
+
+        assertEquals(2L, nextVal("roles"));
+        assertEquals(3L, roleRepository.saveAndFlush(Role.builder().name("AUDITOR").build()).getId());
+    }
+
+    private void insertRole(long id) {
+        jdbcTemplate.update("INSERT INTO roles (id, name, is_admin, is_default_role, deleted) VALUES (?, ?, ?, ?, ?)",
+                id, "LEGACY_" + id, false, false, false);
+    }
+
+    private void insertUser(long id) {
+        jdbcTemplate.update("INSERT INTO users (id, firstname, email, age, gender, deleted) VALUES (?, ?, ?, ?, ?, ?)",
+                id, "Legacy", "legacy" + id + "@example.com", 30, 0, false);
+    }
+
+    private Long nextVal(String name) {
+        return jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE sequence_name = ?", Long.class,
+                name);
+    }
+}
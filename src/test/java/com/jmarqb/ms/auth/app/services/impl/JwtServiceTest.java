@@ -0,0 +1,184 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.jmarqb.ms.auth.app.entities.Role;
+import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.security.AuthenticatedUser;
+import com.jmarqb.ms.auth.app.security.JwtKeyRing;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtServiceTest {
+
+    private JwtKeyRing keyRing;
+
+    private RoleIdRegistry roleIdRegistry;
+
+    private JwtService jwtService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        keyRing = new JwtKeyRing("classpath:keys/jwt-test-keys.p12", "PKCS12", "changeit", "key-2026");
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAllByDeletedFalse()).thenReturn(List.of(
+                Role.builder().id(1L).name("USER").build(),
+                Role.builder().id(2L).name("ADMIN").build()));
+        roleIdRegistry = new RoleIdRegistry(roleRepository, Duration.ofMinutes(1));
+        jwtService = newJwtService(keyRing, JwtService.AuthoritiesFormat.NAMES);
+        user = new User("testadmin@example.com", "password",
+                List.of(new SimpleGrantedAuthority("ADMIN"), new SimpleGrantedAuthority("USER")));
+    }
+
+    @Test
+    void verify() throws JsonProcessingException {
+        String token = jwtService.generateToken(user);
+
+        TokenClaims claims = jwtService.verify(token);
+
+        assertEquals("testadmin@example.com", claims.subject());
+        assertEquals(List.of("ADMIN", "USER"), claims.authorities());
+        assertNotNull(claims.issuedAt());
+        assertTrue(claims.expiration().after(new Date()));
+        assertFalse(claims.isExpired());
+    }
+
+    @Test
+    void verifyCarriesUserId() {
+        String token = jwtService.generateToken(new AuthenticatedUser(42L, "testadmin@example.com", "password",
+                List.of(new SimpleGrantedAuthority("ADMIN"))));
+
+        TokenClaims claims = jwtService.verify(token);
+
+        assertEquals(42L, claims.userId());
+        assertEquals(List.of("ADMIN"), claims.authorities());
+    }
+
+    @Test
+    void generateTokenUsesNativeAuthoritiesArray() {
+        String token = jwtService.generateToken(user);
+
+        String payload = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+        assertTrue(payload.contains("\"authorities\":[\"ADMIN\",\"USER\"]"));
+        assertTrue(payload.contains("\"ver\":2"));
+    }
+
+    @Test
+    void verifyLegacyToken() {
+        String token = Jwts.builder()
+                .header().keyId(keyRing.activeKeyId()).and()
+                .subject("testadmin@example.com")
+                .claim("authorities", "[{\"authority\":\"ADMIN\"},{\"authority\":\"USER\"}]")
+                .claim("username", "testadmin@example.com")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(keyRing.signingKey())
+                .compact();
+
+        TokenClaims claims = jwtService.verify(token);
+
+        assertEquals("testadmin@example.com", claims.subject());
+        assertEquals(List.of("ADMIN", "USER"), claims.authorities());
+        assertNull(claims.userId());
+    }
+
+    @Test
+    void bitmaskFormatRoundTrip() {
+        JwtService bitmaskService = newJwtService(keyRing, JwtService.AuthoritiesFormat.BITMASK);
+
+        String token = bitmaskService.generateToken(user);
+
+        String payload = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+        assertTrue(payload.contains("\"rmask\":3"));
+        assertFalse(payload.contains("authorities"));
+        assertEquals(List.of("USER", "ADMIN"), bitmaskService.verify(token).authorities());
+        // Consumers configured with either format accept both.
+        assertEquals(List.of("USER", "ADMIN"), jwtService.verify(token).authorities());
+    }
+
+    @Test
+    void bitmaskFormatFallsBackToNamesForUnknownRoles() {
+        JwtService bitmaskService = newJwtService(keyRing, JwtService.AuthoritiesFormat.BITMASK);
+
+        String token = bitmaskService.generateToken(new User("testadmin@example.com", "password",
+                List.of(new SimpleGrantedAuthority("ADMIN"), new SimpleGrantedAuthority("AUDITOR"))));
+
+        assertEquals(List.of("ADMIN", "AUDITOR"), bitmaskService.verify(token).authorities());
+    }
+
+    @Test
+    void verifyTamperedToken() throws JsonProcessingException {
+        String token = jwtService.generateToken(user);
+        // The last character of the signature only carries a few bits, so change one well inside it.
+        int at = token.lastIndexOf('.') + 10;
+        String tampered = token.substring(0, at) + (token.charAt(at) == 'A' ? 'B' : 'A') + token.substring(at + 1);
+
+        assertThrows(JwtException.class, () -> jwtService.verify(tampered));
+    }
+
+    @Test
+    void verifyExpiredToken() {
+        String token = Jwts.builder()
+                .header().keyId(keyRing.activeKeyId()).and()
+                .subject("testadmin@example.com")
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(keyRing.signingKey())
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void verifyTokenSignedWithRetiredKey() throws JsonProcessingException {
+        JwtKeyRing previousRing = new JwtKeyRing("classpath:keys/jwt-test-keys.p12", "PKCS12", "changeit", "key-2025");
+        String token = newJwtService(previousRing, JwtService.AuthoritiesFormat.NAMES).generateToken(user);
+
+        assertEquals("testadmin@example.com", jwtService.verify(token).subject());
+    }
+
+    @Test
+    void verifyTokenWithUnknownKeyId() throws JsonProcessingException {
+        JwtKeyRing ephemeralRing = new JwtKeyRing("", "PKCS12", "", "");
+        String token = newJwtService(ephemeralRing, JwtService.AuthoritiesFormat.NAMES).generateToken(user);
+
+        assertThrows(JwtException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void generateTokenUsesActiveKeyId() throws JsonProcessingException {
+        String token = jwtService.generateToken(user);
+
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        assertTrue(header.contains("\"kid\":\"key-2026\""));
+        assertTrue(header.contains("\"alg\":\"EdDSA\""));
+    }
+
+    @Test
+    void isTokenValid() throws JsonProcessingException {
+        String token = jwtService.generateToken(user);
+
+        assertTrue(jwtService.isTokenValid(token, user));
+        assertFalse(jwtService.isTokenValid(token, new User("other@example.com", "password", List.of())));
+    }
+
+    private JwtService newJwtService(JwtKeyRing ring, JwtService.AuthoritiesFormat format) {
+        return new JwtService(ring, Duration.ofMinutes(15), roleIdRegistry, format);
+    }
+}
@@ -0,0 +1,89 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.repositories.RegisteredEmail;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegisteredEmailFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    @BeforeEach
+    void setUp() {
+        registeredEmailFilter = new RegisteredEmailFilter(userRepository, true, 1000, 0.001);
+    }
+
+    @Test
+    void everyEmailMightBeRegisteredBeforeFirstBuild() {
+        assertTrue(registeredEmailFilter.mightBeRegistered("unknown@example.com"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void rebuildLoadsRegisteredEmails() {
+        when(userRepository.findRegisteredEmailsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new RegisteredEmail(1L, "testadmin@example.com")));
+
+        registeredEmailFilter.rebuildOnStartup();
+
+        assertTrue(registeredEmailFilter.mightBeRegistered("TestAdmin@example.com"));
+        assertFalse(registeredEmailFilter.mightBeRegistered("unknown@example.com"));
+    }
+
+    @Test
+    void registerAddsImmediately() {
+        when(userRepository.findRegisteredEmailsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of());
+        registeredEmailFilter.rebuildOnStartup();
+
+        registeredEmailFilter.register("new@example.com");
+
+        assertTrue(registeredEmailFilter.mightBeRegistered("new@example.com"));
+    }
+
+    @Test
+    void catchUpScansUsersUpdatedSinceTheLastScan() {
+        when(userRepository.findRegisteredEmailsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new RegisteredEmail(7L, "testadmin@example.com")));
+        long rebuiltAt = System.currentTimeMillis();
+        registeredEmailFilter.rebuildOnStartup();
+        // Another instance's new or renamed user may have a lower id than the last one scanned.
+        when(userRepository.findRegisteredEmailsUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new RegisteredEmail(3L, "elsewhere@example.com")));
+
+        registeredEmailFilter.catchUp();
+
+        assertTrue(registeredEmailFilter.mightBeRegistered("elsewhere@example.com"));
+        ArgumentCaptor<Date> since = ArgumentCaptor.forClass(Date.class);
+        verify(userRepository).findRegisteredEmailsUpdatedSince(since.capture(), eq(0L), any(Pageable.class));
+        long sinceMillis = since.getValue().getTime() + RegisteredEmailFilter.SCAN_OVERLAP_MILLIS;
+        assertTrue(sinceMillis >= rebuiltAt && sinceMillis <= System.currentTimeMillis());
+    }
+
+    @Test
+    void disabledFilterNeverRejects() {
+        RegisteredEmailFilter disabled = new RegisteredEmailFilter(userRepository, false, 1000, 0.001);
+
+        disabled.rebuildOnStartup();
+
+        assertTrue(disabled.mightBeRegistered("unknown@example.com"));
+        verifyNoInteractions(userRepository);
+    }
+}
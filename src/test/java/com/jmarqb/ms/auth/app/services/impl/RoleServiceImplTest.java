@@ -3,8 +3,11 @@ package com.jmarqb.ms.auth.app.services.impl;
 import com.jmarqb.ms.auth.app.dtos.request.*;
 import com.jmarqb.ms.auth.app.dtos.response.*;
 import com.jmarqb.ms.auth.app.entities.*;
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
 import com.jmarqb.ms.auth.app.repositories.RoleRepository;
+import com.jmarqb.ms.auth.app.security.RoleIdRegistry;
+import com.jmarqb.ms.auth.app.security.UserDetailsCache;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -14,6 +17,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.jmarqb.ms.auth.app.data.Data.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,11 +32,20 @@ class RoleServiceImplTest {
     @Mock
     private RoleMapper roleMapper;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private RoleIdRegistry roleIdRegistry;
+
+    @Mock
+    private SearchTotals searchTotals;
+
     private RoleServiceImpl roleService;
 
     @BeforeEach
     void setup() {
-        roleService = new RoleServiceImpl(roleRepository, roleMapper);
+        roleService = new RoleServiceImpl(roleRepository, roleMapper, userDetailsCache, roleIdRegistry, searchTotals);
         ReflectionTestUtils.setField(roleService, "roleRepository", roleRepository);
     }
 
@@ -99,6 +112,9 @@ class RoleServiceImplTest {
                 .thenReturn(paginatedResponseDto);
 
 
+        when(searchTotals.count(eq("roles"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(list.size(), TotalStrategy.EXACT)));
+
         PaginatedResponseDto response = roleService.search(searchBodyDto);
 
         assertEquals(response.getTotal(), paginatedResponseDto.getTotal());
@@ -136,6 +152,9 @@ class RoleServiceImplTest {
                 .thenReturn(paginatedResponseDto);
 
 
+        when(searchTotals.count(eq("roles"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(list.size(), TotalStrategy.EXACT)));
+
         PaginatedResponseDto response = roleService.search(searchBodyDto);
 
         assertEquals(response.getTotal(), paginatedResponseDto.getTotal());
@@ -219,6 +238,7 @@ class RoleServiceImplTest {
         verify(roleRepository).findByIdAndDeletedFalse(role.getId());
         verify(roleRepository).save(role);
         verify(roleMapper).toResponse(role);
+        verify(userDetailsCache).evictAllAfterCommit();
     }
 
     @Test
@@ -259,6 +279,7 @@ class RoleServiceImplTest {
 
         verify(roleRepository).findByIdAndDeletedFalse(role.getId());
         verify(roleRepository).save(role);
+        verify(userDetailsCache).evictAllAfterCommit();
     }
 
     @Test
@@ -0,0 +1,99 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.JobLock;
+import com.jmarqb.ms.auth.app.repositories.JobLockRepository;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class SearchColumnsNormalizerTest {
+
+    private @Autowired JdbcTemplate jdbcTemplate;
+    private @Autowired UserRepository userRepository;
+    private @Autowired JobLockRepository jobLockRepository;
+
+    private SearchColumnsNormalizer normalizer;
+
+    @BeforeEach
+    void setUp() {
+        normalizer = new SearchColumnsNormalizer(userRepository, jobLockRepository, 2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void fillsLegacyRowsInBatches() {
+        for (long id = 1; id <= 5; id++) {
+            insertLegacyUser(id);
+        }
+
+        assertTrue(normalizer.normalize());
+
+        assertEquals(0, countWithoutSearchColumns());
+        assertEquals("legacy3@example.com", jdbcTemplate.queryForObject(
+                "SELECT email_normalized FROM users WHERE id = 3", String.class));
+        assertEquals("lastname3", jdbcTemplate.queryForObject(
+                "SELECT lastname_normalized FROM users WHERE id = 3", String.class));
+        // released once done
+        assertTrue(jdbcTemplate.queryForObject("SELECT locked_until FROM job_locks WHERE name = ?", Date.class,
+                SearchColumnsNormalizer.JOB).before(new Date(System.currentTimeMillis() + 1000)));
+    }
+
+    @Test
+    void leavesTheRowsToTheInstanceHoldingTheLease() {
+        insertLegacyUser(1);
+        jobLockRepository.saveAndFlush(new JobLock(SearchColumnsNormalizer.JOB, "other-instance",
+                new Date(System.currentTimeMillis() + 60_000)));
+
+        assertFalse(normalizer.normalize());
+        assertEquals(1, countWithoutSearchColumns());
+
+        jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ?",
+                new Date(System.currentTimeMillis() - 1000), SearchColumnsNormalizer.JOB);
+
+        assertTrue(normalizer.normalize());
+        assertEquals(0, countWithoutSearchColumns());
+    }
+
+    @Test
+    void startsFromTheLowestIdLeftToFill() {
+        for (long id = 1_000_001; id <= 1_000_005; id++) {
+            insertLegacyUser(id);
+        }
+        UserRepository repository = mock(UserRepository.class, delegatesTo(userRepository));
+        normalizer = new SearchColumnsNormalizer(repository, jobLockRepository, 2, Duration.ofMinutes(5));
+
+        assertTrue(normalizer.normalize());
+
+        assertEquals(0, countWithoutSearchColumns());
+        verify(repository).normalizeSearchColumns(1_000_000L, 1_000_002L);
+        verify(repository, times(3)).normalizeSearchColumns(anyLong(), anyLong());
+    }
+
+    @Test
+    void doesNothingWhenEveryRowIsFilled() {
+        assertTrue(normalizer.normalize());
+        assertFalse(jobLockRepository.existsById(SearchColumnsNormalizer.JOB));
+    }
+
+    private void insertLegacyUser(long id) {
+        jdbcTemplate.update("INSERT INTO users (id, firstname, lastname, email, age, gender, deleted) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", id, "Legacy", "LastName" + id, "Legacy" + id + "@Example.com", 30, 0,
+                false);
+    }
+
+    private Integer countWithoutSearchColumns() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM users WHERE email_normalized IS NULL",
+                Integer.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+
+    @Test
+    void roundTrip() {
+        String cursor = SearchCursor.encode(Sort.Direction.DESC, 9_000_000_001L);
+
+        assertEquals(9_000_000_001L, SearchCursor.decode(cursor, Sort.Direction.DESC));
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void marksCursorsOfTheSearchIndex() {
+        SearchCursor.Position database = SearchCursor.decodePosition(SearchCursor.encode(Sort.Direction.ASC, 42L),
+                Sort.Direction.ASC);
+        SearchCursor.Position ranked = SearchCursor.decodePosition(
+                SearchCursor.encodeIndexed(Sort.Direction.ASC, 42L, 1.25f), Sort.Direction.ASC);
+        SearchCursor.Position ordered = SearchCursor.decodePosition(
+                SearchCursor.encodeIndexed(Sort.Direction.ASC, 42L, null), Sort.Direction.ASC);
+
+        assertEquals(new SearchCursor.Position(42L, null, false), database);
+        assertEquals(new SearchCursor.Position(42L, 1.25f, true), ranked);
+        assertEquals(new SearchCursor.Position(42L, null, true), ordered);
+    }
+
+    @Test
+    void absentCursor() {
+        assertNull(SearchCursor.decode(null, Sort.Direction.ASC));
+        assertNull(SearchCursor.decode("", Sort.Direction.ASC));
+    }
+
+    @Test
+    void rejectsOtherSortOrder() {
+        String cursor = SearchCursor.encode(Sort.Direction.ASC, 42L);
+
+        InvalidCursorException e = assertThrows(InvalidCursorException.class,
+                () -> SearchCursor.decode(cursor, Sort.Direction.DESC));
+        assertEquals("Cursor does not match the sort order", e.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        for (String cursor : List.of("not a cursor", "YQ", "eDQy", "YTQyeA")) {
+            assertThrows(InvalidCursorException.class, () -> SearchCursor.decode(cursor, Sort.Direction.ASC), cursor);
+        }
+    }
+
+    @Test
+    void nextOnlyAfterFullPage() {
+        assertNull(SearchCursor.next(List.of(), 2, Sort.Direction.ASC, Function.identity()));
+        assertNull(SearchCursor.next(List.of(1L), 2, Sort.Direction.ASC, Function.identity()));
+
+        String next = SearchCursor.next(List.of(1L, 5L), 2, Sort.Direction.ASC, Function.identity());
+        assertEquals(5L, SearchCursor.decode(next, Sort.Direction.ASC));
+    }
+}
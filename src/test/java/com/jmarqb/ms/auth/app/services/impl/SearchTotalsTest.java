@@ -0,0 +1,112 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SearchTotalsTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicInteger counts = new AtomicInteger();
+
+    private final SearchTotals searchTotals =
+            new SearchTotals(jdbcTemplate, TotalStrategy.CACHED, Duration.ofMinutes(1), 100, 2, 4);
+
+    @AfterEach
+    void tearDown() {
+        searchTotals.destroy();
+    }
+
+    @Test
+    void exactCountRunsWhileTheCallerContinues() throws Exception {
+        CountDownLatch pageRead = new CountDownLatch(1);
+
+        var total = searchTotals.count("users", null, null, "EXACT", () -> {
+            await(pageRead);
+            return 7L;
+        });
+        pageRead.countDown();
+
+        assertEquals(new SearchTotals.Total(7, TotalStrategy.EXACT), total.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cachedReusesCountOfSameTerm() {
+        assertEquals(new SearchTotals.Total(3, TotalStrategy.EXACT),
+                searchTotals.count("users", "Ad", null, null, this::three).join());
+        assertEquals(new SearchTotals.Total(3, TotalStrategy.CACHED),
+                searchTotals.count("users", "aD", null, null, this::three).join());
+        assertEquals(new SearchTotals.Total(3, TotalStrategy.EXACT),
+                searchTotals.count("roles", "ad", null, null, this::three).join());
+        assertEquals(new SearchTotals.Total(3, TotalStrategy.EXACT),
+                searchTotals.count("users", "adm", null, "CACHED", this::three).join());
+
+        assertEquals(3, counts.get());
+    }
+
+    @Test
+    void cachedKeepsFiltersApart() {
+        searchTotals.count("users", "ad", "FEMALE|spain", null, this::three).join();
+
+        assertEquals(TotalStrategy.CACHED,
+                searchTotals.count("users", "ad", "FEMALE|spain", null, this::three).join().strategy());
+        assertEquals(TotalStrategy.EXACT,
+                searchTotals.count("users", "ad", "MALE|spain", null, this::three).join().strategy());
+        assertEquals(TotalStrategy.EXACT, searchTotals.count("users", "ad", null, null, this::three).join().strategy());
+    }
+
+    @Test
+    void exactBypassesCache() {
+        searchTotals.count("users", null, null, "CACHED", this::three).join();
+
+        assertEquals(TotalStrategy.EXACT, searchTotals.count("users", null, null, "EXACT", this::three).join().strategy());
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void estimatedReadsTableStatistics() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("users"))).thenReturn(List.of(1_000_000L));
+
+        assertEquals(new SearchTotals.Total(1_000_000, TotalStrategy.ESTIMATED),
+                searchTotals.count("users", null, null, "ESTIMATED", this::three).join());
+        assertEquals(0, counts.get());
+    }
+
+    @Test
+    void estimatedFallsBackToCached() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+
+        assertEquals(TotalStrategy.EXACT, searchTotals.count("users", null, null, "ESTIMATED", this::three).join().strategy());
+        assertEquals(TotalStrategy.CACHED, searchTotals.count("users", null, null, "ESTIMATED", this::three).join().strategy());
+        // Statistics cannot filter by the search term.
+        assertEquals(TotalStrategy.EXACT, searchTotals.count("users", "ad", null, "ESTIMATED", this::three).join().strategy());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Long.class), any());
+    }
+
+    private long three() {
+        counts.incrementAndGet();
+        return 3;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.dtos.response.IntrospectionResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.TokenIntrospectionDto;
+import com.jmarqb.ms.auth.app.security.TokenAuthenticationCache;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenIntrospectionServiceTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private TokenAuthenticationCache tokenAuthenticationCache;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @InjectMocks
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    private final TokenClaims claims = new TokenClaims("3f1c2a9e-6c1d-4a8b-9d0e-2b7f5c4e8a11", "admin@test.com",
+            1L, List.of("ADMIN"), new Date(1767224700000L), new Date(System.currentTimeMillis() + 3600000));
+
+    @Test
+    void introspectVerifiesEachDistinctTokenOnce() {
+        when(jwtService.verify("valid")).thenReturn(claims);
+
+        IntrospectionResponseDto response = tokenIntrospectionService.introspect(List.of("valid", "valid"));
+
+        assertEquals(2, response.getResults().size());
+        TokenIntrospectionDto result = response.getResults().get(0);
+        assertTrue(result.isActive());
+        assertEquals("admin@test.com", result.getSub());
+        assertEquals(1L, result.getUid());
+        assertEquals(List.of("ADMIN"), result.getAuthorities());
+        assertEquals(1767224700L, result.getIat());
+        assertEquals(claims.id(), result.getJti());
+        verify(jwtService, times(1)).verify("valid");
+    }
+
+    @Test
+    void introspectUsesCachedClaims() {
+        when(tokenAuthenticationCache.get("cached"))
+                .thenReturn(new UsernamePasswordAuthenticationToken("admin@test.com", claims, List.of()));
+
+        TokenIntrospectionDto result = tokenIntrospectionService.introspect(List.of("cached")).getResults().get(0);
+
+        assertTrue(result.isActive());
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void introspectInvalidToken() {
+        when(jwtService.verify("tampered")).thenThrow(new MalformedJwtException("Invalid token"));
+
+        TokenIntrospectionDto result = tokenIntrospectionService.introspect(List.of("tampered")).getResults().get(0);
+
+        assertFalse(result.isActive());
+        assertNull(result.getSub());
+
+        // Each inactive result is its own instance, so changing one leaves later responses alone.
+        result.setSub("someone@example.com");
+        assertNull(tokenIntrospectionService.introspect("tampered").getSub());
+    }
+
+    @Test
+    void introspectRevokedToken() {
+        when(jwtService.verify("revoked")).thenReturn(claims);
+        when(tokenRevocationService.isRevoked(claims)).thenReturn(true);
+
+        TokenIntrospectionDto result = tokenIntrospectionService.introspect(List.of("revoked")).getResults().get(0);
+
+        assertFalse(result.isActive());
+    }
+}
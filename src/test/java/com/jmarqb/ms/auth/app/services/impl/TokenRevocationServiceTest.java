@@ -0,0 +1,136 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.RevokedToken;
+import com.jmarqb.ms.auth.app.repositories.RevokedTokenRepository;
+import com.jmarqb.ms.auth.app.security.TokenClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, Duration.ofMinutes(15), 1000, 0.001);
+    }
+
+    @Test
+    void notRevokedTokenSkipsDatabaseOnceFilterIsReady() {
+        rebuildWith(List.of());
+
+        assertFalse(tokenRevocationService.isRevoked(claims("a1b2c3d4", "user@example.com")));
+
+        verify(revokedTokenRepository, never()).existsByTypeAndValue(any(), any());
+        verify(revokedTokenRepository, never()).existsByTypeAndValueAndRevokedAtGreaterThanEqual(any(), any(), any());
+    }
+
+    @Test
+    void fallsBackToDatabaseBeforeFilterIsReady() {
+        assertFalse(tokenRevocationService.isRevoked(claims("a1b2c3d4", "user@example.com")));
+
+        verify(revokedTokenRepository).existsByTypeAndValue(RevokedToken.Type.TOKEN, "a1b2c3d4");
+    }
+
+    @Test
+    void rebuildLoadsPersistedRevocations() {
+        rebuildWith(List.of(RevokedToken.builder()
+                .type(RevokedToken.Type.TOKEN)
+                .value("a1b2c3d4")
+                .revokedAt(new Date())
+                .expiresAt(new Date(System.currentTimeMillis() + 60000))
+                .build()));
+        when(revokedTokenRepository.existsByTypeAndValue(RevokedToken.Type.TOKEN, "a1b2c3d4")).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isRevoked(claims("a1b2c3d4", "user@example.com")));
+    }
+
+    @Test
+    void revokeTokenIsVisibleImmediately() {
+        rebuildWith(List.of());
+        TokenClaims claims = claims("a1b2c3d4", "user@example.com");
+        when(revokedTokenRepository.existsByTypeAndValue(RevokedToken.Type.TOKEN, "a1b2c3d4")).thenReturn(true);
+
+        tokenRevocationService.revokeToken(claims);
+
+        assertTrue(tokenRevocationService.isRevoked(claims));
+        ArgumentCaptor<RevokedToken> saved = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(saved.capture());
+        assertEquals(RevokedToken.Type.TOKEN, saved.getValue().getType());
+        assertEquals(claims.expiration(), saved.getValue().getExpiresAt());
+    }
+
+    @Test
+    void revokeSubjectCoversTokensIssuedBefore() {
+        rebuildWith(List.of());
+        TokenClaims claims = claims("a1b2c3d4", "deleted@example.com");
+        when(revokedTokenRepository.existsByTypeAndValueAndRevokedAtGreaterThanEqual(
+                RevokedToken.Type.SUBJECT, "deleted@example.com", claims.issuedAt())).thenReturn(true);
+
+        tokenRevocationService.revokeSubject("deleted@example.com");
+
+        assertTrue(tokenRevocationService.isRevoked(claims));
+    }
+
+    @Test
+    void subjectRevocationIsCheckedOnlyOnFilterHits() {
+        rebuildWith(List.of());
+        when(revokedTokenRepository.existsByTypeAndValueAndExpiresAtAfter(
+                eq(RevokedToken.Type.SUBJECT), eq("deleted@example.com"), any(Date.class))).thenReturn(true);
+
+        tokenRevocationService.revokeSubject("deleted@example.com");
+
+        assertTrue(tokenRevocationService.isSubjectRevoked("deleted@example.com"));
+        assertFalse(tokenRevocationService.isSubjectRevoked("user@example.com"));
+        verify(revokedTokenRepository, never())
+                .existsByTypeAndValueAndExpiresAtAfter(any(), eq("user@example.com"), any());
+    }
+
+    @Test
+    void catchUpAddsRevocationsFromOtherInstances() {
+        rebuildWith(List.of());
+        TokenClaims claims = claims("a1b2c3d4", "user@example.com");
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqual(any(Date.class))).thenReturn(List.of(
+                RevokedToken.builder()
+                        .type(RevokedToken.Type.TOKEN)
+                        .value("a1b2c3d4")
+                        .revokedAt(new Date())
+                        .expiresAt(claims.expiration())
+                        .build()));
+        when(revokedTokenRepository.existsByTypeAndValue(RevokedToken.Type.TOKEN, "a1b2c3d4")).thenReturn(true);
+
+        tokenRevocationService.catchUp();
+
+        assertTrue(tokenRevocationService.isRevoked(claims));
+    }
+
+    private void rebuildWith(List<RevokedToken> revoked) {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(revoked));
+        tokenRevocationService.rebuildOnStartup();
+    }
+
+    private TokenClaims claims(String id, String subject) {
+        return new TokenClaims(id, subject, null, List.of("USER"), new Date(System.currentTimeMillis() - 1000),
+                new Date(System.currentTimeMillis() + 60000));
+    }
+}
@@ -0,0 +1,17 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserExportServiceTest {
+
+    @Test
+    void csvQuotesOnlyWhenNeeded() {
+        assertEquals("", UserExportService.csv(null));
+        assertEquals("plain", UserExportService.csv("plain"));
+        assertEquals("\"a,b\"", UserExportService.csv("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", UserExportService.csv("say \"hi\""));
+        assertEquals("\"two\nlines\"", UserExportService.csv("two\nlines"));
+    }
+}
@@ -0,0 +1,258 @@
+package com.jmarqb.ms.auth.app.services.impl;
+
+import com.jmarqb.ms.auth.app.entities.User;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
+import com.jmarqb.ms.auth.app.repositories.SearchableUser;
+import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchIndexTest {
+
+    private static final List<SearchableUser> USERS = List.of(
+            new SearchableUser(1L, "testadmin@example.com", "firstNameAdmin", "lastNameAdmin", Gender.MALE, "Testland"),
+            new SearchableUser(2L, "ana@example.com", "Ana", "Admiral", Gender.FEMALE, "Colombia"),
+            new SearchableUser(3L, "bob@example.com", "Bob", "Stone", Gender.MALE, "Colombia"),
+            new SearchableUser(4L, "carla@example.com", "Carla", "Badminton", Gender.FEMALE, "Peru"));
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserSearchIndex userSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userSearchIndex = new UserSearchIndex(userRepository, true, "");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        userSearchIndex.destroy();
+    }
+
+    @Test
+    void notReadyBeforeFirstBuild() {
+        assertFalse(userSearchIndex.isReady());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void matchesSubstringsLikeTheDatabase() {
+        build(USERS);
+
+        assertEquals(List.of(1L, 2L, 4L), matches("ad"));
+        assertEquals(List.of(1L, 2L, 4L), matches("AdM"));
+        assertEquals(List.of(3L), matches("b@ex"));
+        assertEquals(List.of(), matches("zzz"));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(null, Sort.Direction.ASC));
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(null, Sort.Direction.DESC));
+    }
+
+    @Test
+    void doesNotMatchAcrossFields() {
+        build(USERS);
+
+        assertEquals(List.of(), matches("anaadm"));
+    }
+
+    @Test
+    void ranksWholeWordsFirst() {
+        build(USERS);
+
+        UserSearchIndex.Hits hits = userSearchIndex.search("bob", null, null, Sort.Direction.DESC, 0, 10, null);
+        assertEquals(List.of(3L), hits.ids());
+
+        hits = userSearchIndex.search("admiral", null, null, Sort.Direction.DESC, 0, 10, null);
+        assertEquals(List.of(2L), hits.ids());
+
+        // Carla's "Badminton" only contains the term, Ana's "Admiral" starts with it.
+        hits = userSearchIndex.search("admi", null, null, Sort.Direction.DESC, 0, 10, null);
+        assertEquals(2L, hits.ids().get(0));
+        assertEquals(3, hits.total());
+    }
+
+    @Test
+    void filtersOnGenderAndCountry() {
+        build(USERS);
+
+        assertEquals(List.of(2L, 4L),
+                userSearchIndex.search(null, Gender.FEMALE, null, Sort.Direction.ASC, 0, 10, null).ids());
+        assertEquals(List.of(2L, 3L),
+                userSearchIndex.search(null, null, "COLOMBIA", Sort.Direction.ASC, 0, 10, null).ids());
+        assertEquals(List.of(2L),
+                userSearchIndex.search("a", Gender.FEMALE, "colombia", Sort.Direction.ASC, 0, 10, null).ids());
+    }
+
+    @Test
+    void pagesWithOffsetsAndCursors() {
+        build(USERS);
+
+        UserSearchIndex.Hits first = userSearchIndex.search(null, null, null, Sort.Direction.ASC, 0, 3, null);
+        assertEquals(List.of(1L, 2L, 3L), first.ids());
+        assertEquals(4, first.total());
+        assertNotNull(first.nextCursor());
+
+        UserSearchIndex.Hits next = userSearchIndex.search(null, null, null, Sort.Direction.ASC, 0, 3, first.nextCursor());
+        assertEquals(List.of(4L), next.ids());
+        assertNull(next.nextCursor());
+
+        assertEquals(List.of(4L), userSearchIndex.search(null, null, null, Sort.Direction.ASC, 1, 3, null).ids());
+    }
+
+    @Test
+    void pagesRankedResultsWithCursors() {
+        build(USERS);
+
+        List<Long> all = userSearchIndex.search("a", null, null, Sort.Direction.ASC, 0, 10, null).ids();
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserSearchIndex.Hits hits = userSearchIndex.search("a", null, null, Sort.Direction.ASC, 0, 1, cursor);
+            paged.addAll(hits.ids());
+            cursor = hits.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(all, paged);
+        assertThrows(InvalidCursorException.class, () -> userSearchIndex.search("a", null, null,
+                Sort.Direction.ASC, 0, 1, SearchCursor.encodeIndexed(Sort.Direction.ASC, 1L, null)));
+    }
+
+    @Test
+    void indexesAndRemovesWritesImmediately() {
+        build(USERS);
+
+        User user = User.builder().id(5L).email("zoe@example.com").firstName("Zoe").lastName("Adams")
+                .gender(Gender.FEMALE).country("Peru").build();
+        userSearchIndex.indexAfterCommit(user);
+        assertEquals(List.of(5L), matches("zoe"));
+
+        user.setFirstName("Zelda");
+        userSearchIndex.indexAfterCommit(user);
+        assertEquals(List.of(5L), matches("zelda"));
+
+        userSearchIndex.removeAfterCommit(5L);
+        assertEquals(List.of(), matches("zelda"));
+    }
+
+    @Test
+    void rebuildDropsUsersNoLongerActive() {
+        build(USERS);
+
+        build(USERS.subList(1, 4));
+
+        assertEquals(List.of(2L, 3L, 4L), ids(null, Sort.Direction.ASC));
+        assertEquals(List.of(2L, 4L), matches("ad"));
+    }
+
+    @Test
+    void catchUpAppliesOtherInstancesWritesSinceTheLastScan() {
+        build(List.of(USERS.get(0), USERS.get(2), USERS.get(3)));
+        SearchableUser renamed = new SearchableUser(3L, "robert@example.com", "Robert", "Stone", Gender.MALE,
+                "Colombia");
+        when(userRepository.findSearchableUsersUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(USERS.get(1), renamed));
+        when(userRepository.findDeletedUserIdsUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(4L));
+
+        userSearchIndex.catchUp();
+
+        assertEquals(List.of(1L, 2L, 3L), ids(null, Sort.Direction.ASC));
+        assertEquals(List.of(), matches("bob"));
+        assertEquals(List.of(3L), matches("robert"));
+    }
+
+    @Test
+    void reopenedIndexIsReadyOnlyOnceCaughtUpFromItsLastScan(@TempDir Path path) throws Exception {
+        UserSearchIndex onDisk = new UserSearchIndex(userRepository, true, path.toString());
+        when(userRepository.findSearchableUsersAfter(eq(0L), any(Pageable.class))).thenReturn(USERS);
+        long before = System.currentTimeMillis();
+        onDisk.rebuild();
+        onDisk.destroy();
+
+        UserSearchIndex reopened = new UserSearchIndex(userRepository, true, path.toString());
+        assertFalse(reopened.isReady());
+
+        ArgumentCaptor<Date> since = ArgumentCaptor.forClass(Date.class);
+        when(userRepository.findSearchableUsersUpdatedSince(since.capture(), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(userRepository.findDeletedUserIdsUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(4L));
+        reopened.rebuildOnStartup();
+
+        assertTrue(reopened.isReady());
+        assertTrue(since.getValue().getTime() >= before - RegisteredEmailFilter.SCAN_OVERLAP_MILLIS);
+        assertEquals(List.of(1L, 2L, 3L),
+                reopened.search(null, null, null, Sort.Direction.ASC, 0, 10, null).ids());
+        verify(userRepository).findSearchableUsersAfter(eq(0L), any(Pageable.class));
+        reopened.destroy();
+    }
+
+    @Test
+    void scheduledRebuildOnlyRunsWhenTheCountsKeepDiffering() {
+        build(USERS);
+        when(userRepository.findSearchableUsersUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(userRepository.findDeletedUserIdsUpdatedSince(any(Date.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        when(userRepository.countByDeletedFalse()).thenReturn(4L);
+        userSearchIndex.scheduledRebuild();
+        when(userRepository.countByDeletedFalse()).thenReturn(5L);
+        userSearchIndex.scheduledRebuild();
+        when(userRepository.countByDeletedFalse()).thenReturn(4L);
+        userSearchIndex.scheduledRebuild();
+        verify(userRepository, times(1)).findSearchableUsersAfter(eq(0L), any(Pageable.class));
+
+        when(userRepository.countByDeletedFalse()).thenReturn(3L);
+        userSearchIndex.scheduledRebuild();
+        userSearchIndex.scheduledRebuild();
+        verify(userRepository, times(2)).findSearchableUsersAfter(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void disabledIndexIsNeverReady() throws Exception {
+        UserSearchIndex disabled = new UserSearchIndex(userRepository, false, "");
+
+        disabled.rebuildOnStartup();
+        disabled.catchUp();
+
+        assertFalse(disabled.isReady());
+        verifyNoInteractions(userRepository);
+        disabled.destroy();
+    }
+
+    private void build(List<SearchableUser> users) {
+        when(userRepository.findSearchableUsersAfter(eq(0L), any(Pageable.class))).thenReturn(users);
+        userSearchIndex.rebuild();
+        assertTrue(userSearchIndex.isReady());
+    }
+
+    // Ranked results come in score order; these are the matching ids in id order.
+    private List<Long> matches(String term) {
+        return ids(term, Sort.Direction.ASC).stream().sorted().toList();
+    }
+
+    private List<Long> ids(String term, Sort.Direction direction) {
+        return userSearchIndex.search(term, null, null, direction, 0, 10, null).ids();
+    }
+}
@@ -7,14 +7,20 @@ import com.jmarqb.ms.auth.app.dtos.request.UpdateUserDto;
 import com.jmarqb.ms.auth.app.dtos.response.CreateUserResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.DeleteResponseDto;
 import com.jmarqb.ms.auth.app.dtos.response.PaginatedResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.RoleAssignmentResponseDto;
+import com.jmarqb.ms.auth.app.dtos.response.UserSuggestionDto;
 import com.jmarqb.ms.auth.app.entities.Role;
 import com.jmarqb.ms.auth.app.entities.User;
 import com.jmarqb.ms.auth.app.entities.UserMapper;
-import com.jmarqb.ms.auth.app.exceptions.DuplicateKeyException;
+import com.jmarqb.ms.auth.app.enums.Gender;
+import com.jmarqb.ms.auth.app.enums.TotalStrategy;
+import com.jmarqb.ms.auth.app.exceptions.InvalidCursorException;
 import com.jmarqb.ms.auth.app.exceptions.RoleNotFoundException;
 import com.jmarqb.ms.auth.app.exceptions.UserNotFoundException;
 import com.jmarqb.ms.auth.app.repositories.RoleRepository;
 import com.jmarqb.ms.auth.app.repositories.UserRepository;
+import com.jmarqb.ms.auth.app.repositories.UserSuggestion;
+import com.jmarqb.ms.auth.app.security.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +33,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static com.jmarqb.ms.auth.app.data.Data.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,11 +54,31 @@ class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    @Mock
+    private SearchTotals searchTotals;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
     private UserServiceImpl userService;
 
     @BeforeEach
     void setUp() {
-        userService = new UserServiceImpl(userRepository, roleRepository, passwordEncoder, userMapper);
+        userService = new UserServiceImpl(userRepository, roleRepository, passwordEncoder, userMapper, userDetailsCache,
+                tokenRevocationService, refreshTokenService, registeredEmailFilter, searchTotals,
+                userSearchIndex, 20);
         ReflectionTestUtils.setField(userService, "userRepository", userRepository);
         ReflectionTestUtils.setField(userService, "roleRepository", roleRepository);
         ReflectionTestUtils.setField(userService,"passwordEncoder", passwordEncoder);
@@ -86,7 +113,9 @@ class UserServiceImplTest {
         verify(roleRepository).findByName("USER");
         verify(userMapper).toEntity(createUserDto);
         verify(userRepository).save(user);
+        verify(userSearchIndex).indexAfterCommit(user);
         verify(userMapper).toResponse(user);
+        verify(registeredEmailFilter).register(user.getEmail());
     }
     @Test
     void save_shouldThrowRuntimeException_whenRoleNotFound() {
@@ -125,13 +154,16 @@ class UserServiceImplTest {
                 searchBodyDto.getSort().equalsIgnoreCase("asc") ?
                         Sort.Direction.ASC : Sort.Direction.DESC, "id");
 
-        when(userRepository.searchAllByRegex(searchBodyDto.getSearch(), pageable)).thenReturn(list);
+        when(userRepository.searchAllByRegex(searchBodyDto.getSearch(), null, null, pageable)).thenReturn(list);
         when(userMapper.toResponse(list.get(0))).thenReturn(list1.get(0));
         when(userMapper.toResponse(list.get(1))).thenReturn(list1.get(1));
         when(userMapper.toPaginatedResponse(eq(list1), eq(list.size()), eq(searchBodyDto.getPage()), eq(searchBodyDto.getSize()), any(Date.class)))
                 .thenReturn(paginatedResponseDto);
 
 
+        when(searchTotals.count(eq("users"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(list.size(), TotalStrategy.EXACT)));
+
         PaginatedResponseDto response = userService.search(searchBodyDto);
 
         assertEquals(paginatedResponseDto.getTotal(), response.getTotal());
@@ -139,7 +171,7 @@ class UserServiceImplTest {
         assertEquals(paginatedResponseDto.getSize(), response.getSize());
         assertEquals(paginatedResponseDto.getData(), response.getData());
 
-        verify(userRepository).searchAllByRegex(searchBodyDto.getSearch(), pageable);
+        verify(userRepository).searchAllByRegex(searchBodyDto.getSearch(), null, null, pageable);
         verify(userMapper).toPaginatedResponse(eq(list1), eq(list.size()), eq(searchBodyDto.getPage()), eq(searchBodyDto.getSize()), any(Date.class));
     }
 
@@ -162,13 +194,16 @@ class UserServiceImplTest {
                 searchBodyDto.getSort().equalsIgnoreCase("asc") ?
                         Sort.Direction.ASC : Sort.Direction.DESC, "id");
 
-        when(userRepository.searchAll( pageable)).thenReturn(list);
+        when(userRepository.searchAll(null, null, pageable)).thenReturn(list);
         when(userMapper.toResponse(list.get(0))).thenReturn(list1.get(0));
         when(userMapper.toResponse(list.get(1))).thenReturn(list1.get(1));
         when(userMapper.toPaginatedResponse(eq(list1), eq(list.size()), eq(searchBodyDto.getPage()), eq(searchBodyDto.getSize()), any(Date.class)))
                 .thenReturn(paginatedResponseDto);
 
 
+        when(searchTotals.count(eq("users"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(list.size(), TotalStrategy.EXACT)));
+
         PaginatedResponseDto response = userService.search(searchBodyDto);
 
         assertEquals(paginatedResponseDto.getTotal(), response.getTotal());
@@ -176,7 +211,8 @@ class UserServiceImplTest {
         assertEquals(paginatedResponseDto.getSize(), response.getSize());
         assertEquals(paginatedResponseDto.getData(), response.getData());
 
-        verify(userRepository).searchAll(pageable);
+        verify(userRepository).searchAll(null, null, pageable);
+        verify(userRepository).findAllWithRolesByIdIn(list.stream().map(User::getId).toList());
         verify(userMapper).toPaginatedResponse(eq(list1), eq(list.size()), eq(searchBodyDto.getPage()), eq(searchBodyDto.getSize()), any(Date.class));
 
     }
@@ -189,7 +225,7 @@ class UserServiceImplTest {
                 searchBodyDto.getSort().equalsIgnoreCase("asc") ?
                         Sort.Direction.ASC : Sort.Direction.DESC, "id");
 
-        when(userRepository.searchAllByRegex(searchBodyDto.getSearch(), pageable))
+        when(userRepository.searchAllByRegex(searchBodyDto.getSearch(), null, null, pageable))
                 .thenThrow(new RuntimeException("Database error"));
 
         RuntimeException exception = assertThrows(
@@ -201,7 +237,238 @@ class UserServiceImplTest {
         assertNotNull(exception.getCause());
         assertEquals("Database error", exception.getCause().getMessage());
 
-        verify(userRepository).searchAllByRegex(searchBodyDto.getSearch(), pageable);
+        verify(userRepository).searchAllByRegex(searchBodyDto.getSearch(), null, null, pageable);
+    }
+
+    @Test
+    void searchWithCursor() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 7, 2, "DESC");
+        searchBodyDto.setCursor(SearchCursor.encode(Sort.Direction.DESC, 10L));
+
+        List<User> list = List.of(createUser(9L), createUser(8L));
+        List<CreateUserResponseDto> list1 = List.of(createAdminUserResponseDto(9L), createAdminUserResponseDto(8L));
+        PaginatedResponseDto paginatedResponseDto = PaginatedResponseDto.builder().data(list1).build();
+        Pageable limit = PageRequest.of(0, 2, Sort.Direction.DESC, "id");
+
+        when(userRepository.searchAllBefore(10L, null, null, limit)).thenReturn(list);
+        when(userMapper.toResponse(list.get(0))).thenReturn(list1.get(0));
+        when(userMapper.toResponse(list.get(1))).thenReturn(list1.get(1));
+        when(userMapper.toPaginatedResponse(eq(list1), eq(2), eq(7), eq(2), any(Date.class)))
+                .thenReturn(paginatedResponseDto);
+
+        when(searchTotals.count(eq("users"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(2, TotalStrategy.EXACT)));
+
+        PaginatedResponseDto response = userService.search(searchBodyDto);
+
+        assertEquals(list1, response.getData());
+        assertEquals(8L, SearchCursor.decode(response.getNextCursor(), Sort.Direction.DESC));
+        verify(userRepository).searchAllBefore(10L, null, null, limit);
+        verify(userRepository, never()).searchAll(any(), any(), any());
+    }
+
+    @Test
+    void searchFromIndex() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("user", 0, 4, "ASC");
+        searchBodyDto.setGender("MALE");
+        searchBodyDto.setCountry("testland");
+
+        User deleted = createUser(4L);
+        deleted.setDeleted(true);
+        // Changed on another instance after the index last saw them.
+        User otherGender = createUser(5L);
+        otherGender.setGender(Gender.FEMALE);
+        User renamed = createUser(6L);
+        renamed.setEmail("someone@example.com");
+        renamed.setFirstName("Some");
+        renamed.setLastName("One");
+        List<User> rows = List.of(createUser(2L), deleted, otherGender, renamed, createUser(7L));
+        List<CreateUserResponseDto> list1 = List.of(createAdminUserResponseDto(7L), createAdminUserResponseDto(2L));
+        PaginatedResponseDto paginatedResponseDto = PaginatedResponseDto.builder().data(list1).build();
+
+        when(searchTotals.strategy(null)).thenReturn(TotalStrategy.CACHED);
+        when(userSearchIndex.isReady()).thenReturn(true);
+        when(userSearchIndex.search("user", Gender.MALE, "testland", Sort.Direction.ASC, 0, 4, null))
+                .thenReturn(new UserSearchIndex.Hits(List.of(7L, 4L, 5L, 6L, 2L), 9, "next"));
+        when(userRepository.findAllWithRolesByIdIn(List.of(7L, 4L, 5L, 6L, 2L))).thenReturn(rows);
+        when(userMapper.toResponse(rows.get(4))).thenReturn(list1.get(0));
+        when(userMapper.toResponse(rows.get(0))).thenReturn(list1.get(1));
+        when(userMapper.toPaginatedResponse(eq(list1), eq(9), eq(0), eq(4), any(Date.class)))
+                .thenReturn(paginatedResponseDto);
+
+        PaginatedResponseDto response = userService.search(searchBodyDto);
+
+        assertEquals(list1, response.getData());
+        assertEquals("next", response.getNextCursor());
+        assertEquals("ESTIMATED", response.getTotalStrategy());
+        verify(userRepository, never()).searchAllByRegex(any(), any(), any(), any());
+        verify(searchTotals, never()).count(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void searchFromIndexCountsInTheDatabaseWhenExactTotalIsRequested() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("user", 0, 2, "ASC");
+        searchBodyDto.setTotalStrategy("EXACT");
+        List<User> rows = List.of(createUser(2L));
+        List<CreateUserResponseDto> list1 = List.of(createAdminUserResponseDto(2L));
+
+        when(searchTotals.strategy("EXACT")).thenReturn(TotalStrategy.EXACT);
+        when(searchTotals.count(eq("users"), eq("user"), isNull(), eq("EXACT"), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(1, TotalStrategy.EXACT)));
+        when(userSearchIndex.isReady()).thenReturn(true);
+        when(userSearchIndex.search("user", null, null, Sort.Direction.ASC, 0, 2, null))
+                .thenReturn(new UserSearchIndex.Hits(List.of(2L), 3, null));
+        when(userRepository.findAllWithRolesByIdIn(List.of(2L))).thenReturn(rows);
+        when(userMapper.toResponse(rows.get(0))).thenReturn(list1.get(0));
+        when(userMapper.toPaginatedResponse(eq(list1), eq(1), eq(0), eq(2), any(Date.class)))
+                .thenReturn(PaginatedResponseDto.builder().data(list1).build());
+
+        PaginatedResponseDto response = userService.search(searchBodyDto);
+
+        assertEquals("EXACT", response.getTotalStrategy());
+    }
+
+    @Test
+    void searchKeepsPagingADatabaseCursorInTheDatabaseOnceTheIndexIsReady() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("user", 0, 2, "DESC");
+        searchBodyDto.setCursor(SearchCursor.encode(Sort.Direction.DESC, 10L));
+        Pageable limit = PageRequest.of(0, 2, Sort.Direction.DESC, "id");
+
+        lenient().when(userSearchIndex.isReady()).thenReturn(true);
+        when(userRepository.searchAllByRegexBefore("user", 10L, null, null, limit)).thenReturn(List.of());
+        when(searchTotals.count(eq("users"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(0, TotalStrategy.EXACT)));
+        when(userMapper.toPaginatedResponse(eq(List.of()), eq(0), eq(0), eq(2), any(Date.class)))
+                .thenReturn(PaginatedResponseDto.builder().data(List.of()).build());
+
+        userService.search(searchBodyDto);
+
+        verify(userRepository).searchAllByRegexBefore("user", 10L, null, null, limit);
+        verify(userSearchIndex, never()).search(any(), any(), any(), any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void searchRejectsARankedIndexCursorWhileTheIndexIsNotReady() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("user", 0, 2, "ASC");
+        searchBodyDto.setCursor(SearchCursor.encodeIndexed(Sort.Direction.ASC, 10L, 1.5f));
+
+        when(userSearchIndex.isReady()).thenReturn(false);
+
+        assertThrows(InvalidCursorException.class, () -> userService.search(searchBodyDto));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchContinuesAnIndexCursorInIdOrderInTheDatabaseWhileTheIndexIsNotReady() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 2, "ASC");
+        searchBodyDto.setCursor(SearchCursor.encodeIndexed(Sort.Direction.ASC, 10L, null));
+        Pageable limit = PageRequest.of(0, 2, Sort.Direction.ASC, "id");
+
+        when(userSearchIndex.isReady()).thenReturn(false);
+        when(userRepository.searchAllAfter(10L, null, null, limit)).thenReturn(List.of());
+        when(searchTotals.count(eq("users"), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(0, TotalStrategy.EXACT)));
+        when(userMapper.toPaginatedResponse(eq(List.of()), eq(0), eq(0), eq(2), any(Date.class)))
+                .thenReturn(PaginatedResponseDto.builder().data(List.of()).build());
+
+        userService.search(searchBodyDto);
+
+        verify(userRepository).searchAllAfter(10L, null, null, limit);
+    }
+
+    @Test
+    void searchWithPrefixMode() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("Ad_M", 1, 2, "ASC");
+        searchBodyDto.setMode("PREFIX");
+
+        List<User> list = List.of(createUser(4L), createUser(5L));
+        List<CreateUserResponseDto> list1 = List.of(createAdminUserResponseDto(4L), createAdminUserResponseDto(5L));
+        PaginatedResponseDto paginatedResponseDto = PaginatedResponseDto.builder().data(list1).build();
+        Pageable top = PageRequest.of(0, 4, Sort.Direction.ASC, "id");
+
+        when(userRepository.findIdsByEmailPrefix("ad!_m%", Long.MIN_VALUE, Long.MAX_VALUE, null, null, top))
+                .thenReturn(List.of(1L, 2L, 5L, 6L));
+        when(userRepository.findIdsByLastNamePrefix("ad!_m%", Long.MIN_VALUE, Long.MAX_VALUE, null, null, top))
+                .thenReturn(List.of(2L, 4L, 5L));
+        when(userRepository.findAllWithRolesByIdIn(List.of(4L, 5L))).thenReturn(List.of(list.get(1), list.get(0)));
+        when(userMapper.toResponse(list.get(0))).thenReturn(list1.get(0));
+        when(userMapper.toResponse(list.get(1))).thenReturn(list1.get(1));
+        when(userMapper.toPaginatedResponse(eq(list1), eq(6), eq(1), eq(2), any(Date.class)))
+                .thenReturn(paginatedResponseDto);
+        when(searchTotals.count(eq("users"), eq("Ad_M"), eq("PREFIX|null|null"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(6, TotalStrategy.EXACT)));
+
+        PaginatedResponseDto response = userService.search(searchBodyDto);
+
+        assertEquals(list1, response.getData());
+        verify(userRepository, never()).searchAllByRegex(any(), any(), any(), any());
+        verifyNoInteractions(userSearchIndex);
+    }
+
+    @Test
+    void searchWithPrefixModeAfterCursor() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto("ad", 0, 2, "DESC");
+        searchBodyDto.setMode("PREFIX");
+        searchBodyDto.setCursor(SearchCursor.encode(Sort.Direction.DESC, 9L));
+
+        Pageable top = PageRequest.of(0, 2, Sort.Direction.DESC, "id");
+        when(userRepository.findIdsByEmailPrefix("ad%", Long.MIN_VALUE, 9L, null, null, top))
+                .thenReturn(List.of(7L));
+        when(userRepository.findIdsByLastNamePrefix("ad%", Long.MIN_VALUE, 9L, null, null, top))
+                .thenReturn(List.of(8L, 7L));
+        when(userRepository.findAllWithRolesByIdIn(List.of(8L, 7L))).thenReturn(List.of());
+        when(searchTotals.count(eq("users"), eq("ad"), eq("PREFIX|null|null"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new SearchTotals.Total(2, TotalStrategy.EXACT)));
+        when(userMapper.toPaginatedResponse(eq(List.of()), eq(2), eq(0), eq(2), any(Date.class)))
+                .thenReturn(PaginatedResponseDto.builder().data(List.of()).build());
+
+        userService.search(searchBodyDto);
+
+        verify(userRepository).findAllWithRolesByIdIn(List.of(8L, 7L));
+    }
+
+    @Test
+    void autocomplete() {
+        when(userRepository.suggestByEmail("ad%", PageRequest.ofSize(3))).thenReturn(List.of(
+                new UserSuggestion(1L, "admin@example.com", "Admin", "Admin")));
+        when(userRepository.suggestByLastName("ad%", PageRequest.ofSize(3))).thenReturn(List.of(
+                new UserSuggestion(1L, "admin@example.com", "Admin", "Admin"),
+                new UserSuggestion(5L, "zoe@example.com", "Zoe", "Adams"),
+                new UserSuggestion(6L, "max@example.com", null, "Adler")));
+
+        List<UserSuggestionDto> suggestions = userService.autocomplete(" Ad ", 3);
+
+        assertEquals(List.of(
+                new UserSuggestionDto(1L, "Admin Admin <admin@example.com>"),
+                new UserSuggestionDto(5L, "Zoe Adams <zoe@example.com>"),
+                new UserSuggestionDto(6L, "Adler <max@example.com>")), suggestions);
+    }
+
+    @Test
+    void autocompleteCapsLimitAndSkipsLastNamesWhenFull() {
+        List<UserSuggestion> byEmail = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            byEmail.add(new UserSuggestion(id, "a" + id + "@example.com", "A", "B"));
+        }
+        when(userRepository.suggestByEmail("a%", PageRequest.ofSize(20))).thenReturn(byEmail);
+
+        assertEquals(20, userService.autocomplete("a", 500).size());
+        assertEquals(List.of(), userService.autocomplete("  ", 10));
+        verify(userRepository, never()).suggestByLastName(any(), any());
+    }
+
+    @Test
+    void prefixPatternEscapesWildcards() {
+        assertEquals("a!%b!_c!!%", UserServiceImpl.prefixPattern("A%b_C!"));
+    }
+
+    @Test
+    void searchWithInvalidCursor() {
+        SearchBodyDto searchBodyDto = createSearchBodyDto(null, 0, 2, "ASC");
+        searchBodyDto.setCursor(SearchCursor.encode(Sort.Direction.DESC, 10L));
+
+        assertThrows(InvalidCursorException.class, () -> userService.search(searchBodyDto));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -276,6 +543,8 @@ class UserServiceImplTest {
         verify(userRepository).findByIdAndDeletedFalse(user.getId());
         verify(userRepository).save(user);
         verify(userMapper).toResponse(user);
+        verify(userDetailsCache).evictAfterCommit(List.of(user.getEmail(), user.getEmail()));
+        verify(userSearchIndex).indexAfterCommit(user);
     }
 
     @Test
@@ -316,6 +585,10 @@ class UserServiceImplTest {
 
         verify(userRepository).findByIdAndDeletedFalse(user.getId());
         verify(userRepository).save(user);
+        verify(userDetailsCache).evictAfterCommit(user.getEmail());
+        verify(tokenRevocationService).revokeSubject(user.getEmail());
+        verify(refreshTokenService).revokeAll(user.getEmail());
+        verify(userSearchIndex).removeAfterCommit(user.getId());
     }
 
     @Test
@@ -337,34 +610,47 @@ class UserServiceImplTest {
         Role role = createRole(1L);
         User user1 = createUser(1L);
         User user2 = createUser(2L);
-        List<User> users = List.of(user1, user2);
-
-        Long[] usersIds = {user1.getId(), user2.getId()};
-        RoleToUsersDto roleToUsersDto = new RoleToUsersDto(usersIds, role.getId());
-
-        CreateUserResponseDto responseDto1 = createAdminUserResponseDto(user1.getId());
-        CreateUserResponseDto responseDto2 = createAdminUserResponseDto(user2.getId());
+        RoleToUsersDto roleToUsersDto = new RoleToUsersDto(new Long[]{1L, 2L, 2L, 3L}, role.getId());
 
         when(roleRepository.findByIdAndDeletedFalse(role.getId())).thenReturn(role);
-        when(userRepository.findAllById(Arrays.asList(usersIds[0], usersIds[1]))).thenReturn(users);
-        when(userMapper.toResponse(user1)).thenReturn(responseDto1);
-        when(userMapper.toResponse(user2)).thenReturn(responseDto2);
-        when(userMapper.toPaginatedResponse(anyList(), anyInt(), anyInt(), anyInt(), any(Date.class)))
-                .thenReturn(PaginatedResponseDto.builder().data(List.of(responseDto1, responseDto2)).build());
+        when(userRepository.findActiveEmailsByIdIn(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(user1.getEmail(), user2.getEmail()));
+        when(userRepository.addRoleToActiveUsers(role.getId(), List.of(1L, 2L, 3L))).thenReturn(1);
+
+        RoleAssignmentResponseDto response = userService.addRoleToManyUsers(roleToUsersDto);
+
+        assertEquals(role.getId(), response.getRoleId());
+        assertEquals(3, response.getRequested());
+        assertEquals(1, response.getInserted());
+        assertEquals(1, response.getAlreadyPresent());
+        assertEquals(1, response.getNotFound());
+
+        verify(userRepository).addRoleToActiveUsers(role.getId(), List.of(1L, 2L, 3L));
+        verify(userRepository, never()).findAllById(any());
+        verify(userRepository, never()).saveAll(any());
+        verify(userDetailsCache).evictAfterCommit(List.of(user1.getEmail(), user2.getEmail()));
+    }
 
-        PaginatedResponseDto response = userService.addRoleToManyUsers(roleToUsersDto);
+    @Test
+    void addRoleToManyUsers_runsInChunks() {
+        Role role = createRole(1L);
+        Long[] ids = new Long[2500];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1L;
+        }
 
-        assertNotNull(response);
-        assertEquals(2, response.getData().size());
-        assertTrue(user1.getRoles().contains(role));
-        assertTrue(user2.getRoles().contains(role));
+        when(roleRepository.findByIdAndDeletedFalse(role.getId())).thenReturn(role);
+        when(userRepository.findActiveEmailsByIdIn(anyList()))
+                .thenAnswer(invocation -> ((List<Long>) invocation.getArgument(0)).stream()
+                        .map(id -> "user" + id + "@example.com").toList());
+        when(userRepository.addRoleToActiveUsers(eq(role.getId()), anyList()))
+                .thenAnswer(invocation -> ((List<Long>) invocation.getArgument(1)).size());
 
-        verify(roleRepository).findByIdAndDeletedFalse(role.getId());
-        verify(userRepository).findAllById(Arrays.asList(usersIds[0], usersIds[1]));
-        verify(userMapper).toResponse(user1);
-        verify(userMapper).toResponse(user2);
-        verify(userMapper).toPaginatedResponse(anyList(), anyInt(), anyInt(), anyInt(), any(Date.class));
+        RoleAssignmentResponseDto response = userService.addRoleToManyUsers(new RoleToUsersDto(ids, role.getId()));
 
+        assertEquals(2500, response.getInserted());
+        assertEquals(0, response.getAlreadyPresent());
+        verify(userRepository, times(3)).addRoleToActiveUsers(eq(role.getId()), anyList());
     }
 
     @Test
@@ -393,7 +679,7 @@ class UserServiceImplTest {
         RoleToUsersDto roleToUsersDto = new RoleToUsersDto(userIds, roleId);
 
         when(roleRepository.findByIdAndDeletedFalse(roleId)).thenReturn(role);
-        when(userRepository.findAllById(Arrays.asList(userIds[0], userIds[1]))).thenReturn(Collections.emptyList());
+        when(userRepository.findActiveEmailsByIdIn(List.of(1L, 2L))).thenReturn(Collections.emptyList());
 
         UserNotFoundException exception = assertThrows(UserNotFoundException.class,
                 () -> userService.addRoleToManyUsers(roleToUsersDto)
@@ -402,35 +688,8 @@ class UserServiceImplTest {
         assertEquals("The users do not exist", exception.getMessage());
 
         verify(roleRepository).findByIdAndDeletedFalse(roleId);
-        verify(userRepository).findAllById(Arrays.asList(userIds[0], userIds[1]));
-        verifyNoInteractions(userMapper);
-    }
-
-    @Test
-    void addRoleToManyUsers_shouldThrowDuplicateKeyException() {
-        Role role = createRole(1L);
-        User user1 = createUser(1L);
-        User user2 = createUser(2L);
-        user1.getRoles().add(role);
-        List<User> users = List.of(user1, user2);
-
-        Long[] userIds = {user1.getId(), user2.getId()};
-        RoleToUsersDto roleToUsersDto = new RoleToUsersDto(userIds, role.getId());
-
-        when(roleRepository.findByIdAndDeletedFalse(role.getId())).thenReturn(role);
-        when(userRepository.findAllById(Arrays.asList(userIds[0], userIds[1]))).thenReturn(users);
-        doThrow(new DuplicateKeyException("The user already has this role"))
-                .when(userRepository).saveAll(users);
-
-        DuplicateKeyException exception = assertThrows(DuplicateKeyException.class,
-                () -> userService.addRoleToManyUsers(roleToUsersDto)
-        );
-
-        assertEquals("The user already has this role", exception.getMessage());
-
-        verify(roleRepository).findByIdAndDeletedFalse(role.getId());
-        verify(userRepository).findAllById(Arrays.asList(userIds[0], userIds[1]));
-        verify(userRepository).saveAll(users);
+        verify(userRepository).findActiveEmailsByIdIn(List.of(1L, 2L));
+        verify(userRepository, never()).addRoleToActiveUsers(any(), any());
         verifyNoInteractions(userMapper);
     }
 